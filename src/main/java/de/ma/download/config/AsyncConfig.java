@@ -1,23 +1,42 @@
 package de.ma.download.config;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 
+@Slf4j
 @Configuration
 @EnableAsync
 @EnableScheduling
 public class AsyncConfig {
 
-    @Value("${file.generation.internal.core-pool-size:5}")
-    private int internalCorePoolSize;
+    /**
+     * Connections left to everything but file generation: queue polling and
+     * lease renewal, cleanup and API requests
+     */
+    private static final int CONNECTION_RESERVE = 4;
+
+    @Value("${file.generation.executor-mode:platform}")
+    private String executorMode;
+
+    /** Unset (or not positive) derives the limit from the connection pool */
+    @Value("${file.generation.virtual.max-concurrency:0}")
+    private int virtualMaxConcurrency;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
 
     @Value("${file.generation.internal.max-pool-size:10}")
     private int internalMaxPoolSize;
@@ -34,24 +53,88 @@ public class AsyncConfig {
     @Value("${file.generation.external.queue-capacity:10}")
     private int externalQueueCapacity;
 
+    @Value("${spring.task.scheduling.pool.size:1}")
+    private int schedulingPoolSize;
+
+    @Value("${file.generation.queue.scheduler-pool-size:2}")
+    private int queueSchedulerPoolSize;
+
+    /**
+     * Scheduler for {@code @Scheduled} tasks. Declared explicitly because the
+     * WebSocket broker's scheduler would otherwise be picked up for them.
+     */
+    @Primary
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(schedulingPoolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+
     /**
-     * Executor for internal file generation tasks
+     * Scheduler of the job queue worker. Kept apart from the shared scheduler
+     * so lease renewal is never stuck behind other tasks, with a second thread
+     * so a slow poll cannot delay the heartbeat either.
+     */
+    @Bean(name = "jobQueueScheduler")
+    public ThreadPoolTaskScheduler jobQueueScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(queueSchedulerPoolSize);
+        scheduler.setThreadNamePrefix("JobQueue-");
+        return scheduler;
+    }
+
+    /**
+     * Executor for internal file generation tasks. In {@code virtual} mode every
+     * job gets a virtual thread; the concurrency limit keeps jobs from exhausting
+     * the connection pool, so it defaults to the pool size less a reserve.
      */
     @Bean(name = "fileGenerationTaskExecutor")
     public TaskExecutor fileGenerationTaskExecutor() {
+        if ("virtual".equalsIgnoreCase(executorMode)) {
+            int maxConcurrency = virtualMaxConcurrency(virtualMaxConcurrency, connectionPoolSize);
+            if (maxConcurrency > connectionPoolSize - CONNECTION_RESERVE) {
+                log.warn("Virtual max concurrency {} leaves fewer than {} of {} pooled connections to other work",
+                        maxConcurrency, CONNECTION_RESERVE, connectionPoolSize);
+            }
+            log.info("Using virtual threads for file generation, max concurrency: {}", maxConcurrency);
+            return new VirtualThreadTaskExecutor("FileGen-v-", maxConcurrency);
+        }
+
+        // A pool only grows past its core size once the queue is full, so core
+        // equals max for all admitted jobs to run; idle threads still time out
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(internalCorePoolSize);
+        executor.setCorePoolSize(internalMaxPoolSize);
         executor.setMaxPoolSize(internalMaxPoolSize);
+        executor.setAllowCoreThreadTimeOut(true);
         executor.setQueueCapacity(internalQueueCapacity);
         executor.setThreadNamePrefix("FileGen-");
 
-        // Reject policy that logs discarded tasks
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // FairJobScheduler limits what is in flight; never fall back to running on the caller
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
         executor.initialize();
 
         return executor;
     }
 
+    static int virtualMaxConcurrency(int configured, int connectionPoolSize) {
+        if (configured > 0) {
+            return configured;
+        }
+        return Math.max(1, connectionPoolSize - CONNECTION_RESERVE);
+    }
+
+    /**
+     * Executor for the concurrent sections of a report. Sections wait on
+     * I/O, so each gets a virtual thread; the connection pool bounds the
+     * actual database concurrency.
+     */
+    @Bean(name = "reportSectionExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService reportSectionExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ReportSection-", 0).factory());
+    }
+
     /**
      * Executor for external service calls with different configuration
      */
@@ -1,13 +1,17 @@
 // File: SecurityConfig.java
 package de.ma.download.config;
 
+import de.ma.download.controller.SignedDownloadController;
 import de.ma.download.security.KeycloakJwtAuthenticationConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -28,6 +32,22 @@ public class SecurityConfig {
         this.keycloakJwtAuthenticationConverter = keycloakJwtAuthenticationConverter;
     }
 
+    /**
+     * Signed download links carry their own HMAC-based authorisation, so this
+     * chain skips JWT processing, sessions and CSRF entirely
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain signedDownloadFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(SignedDownloadController.SIGNED_DOWNLOAD_PATH + "/**")
+                .csrf(AbstractHttpConfigurer::disable)
+                .requestCache(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -0,0 +1,46 @@
+package de.ma.download.config;
+
+import de.ma.download.storage.ArtifactStore;
+import de.ma.download.storage.CachingArtifactStore;
+import de.ma.download.storage.LocalFileSystemArtifactStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Configuration
+public class StorageConfig {
+
+    @Value("${file.storage.local.root-dir:${java.io.tmpdir}/file-download-artifacts}")
+    private Path localRootDir;
+
+    @Value("${file.storage.cache.enabled:false}")
+    private boolean cacheEnabled;
+
+    @Value("${file.storage.cache.max-size:256MB}")
+    private DataSize cacheMaxSize;
+
+    @Value("${file.storage.cache.max-entry-size:16MB}")
+    private DataSize cacheMaxEntrySize;
+
+    /** Direct buffers outlive eviction until collected; see {@link CachingArtifactStore} */
+    @Value("${file.storage.cache.off-heap:false}")
+    private boolean cacheOffHeap;
+
+    /**
+     * Artifact store for generated files, optionally fronted by an in-memory cache
+     */
+    @Bean
+    public ArtifactStore artifactStore() {
+        ArtifactStore store = new LocalFileSystemArtifactStore(localRootDir);
+
+        if (cacheEnabled) {
+            store = new CachingArtifactStore(store,
+                    cacheMaxSize.toBytes(), cacheMaxEntrySize.toBytes(), cacheOffHeap);
+        }
+
+        return store;
+    }
+}
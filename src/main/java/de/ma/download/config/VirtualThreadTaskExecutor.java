@@ -0,0 +1,57 @@
+package de.ma.download.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs each task on its own virtual thread. At most {@code maxConcurrency}
+ * tasks run at once; the others park on a semaphore inside their virtual
+ * thread, so submitters never block and waiting tasks cost next to nothing.
+ */
+@Slf4j
+public class VirtualThreadTaskExecutor implements TaskExecutor {
+
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    public VirtualThreadTaskExecutor(String threadNamePrefix, int maxConcurrency) {
+        this.threadFactory = Thread.ofVirtual().name(threadNamePrefix, 0).factory();
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        threadFactory.newThread(() -> runWithPermit(task)).start();
+    }
+
+    /**
+     * A task handed over here must run, or the callbacks its submitter relies
+     * on to settle the job never fire. An interrupt while waiting for a slot
+     * is therefore deferred until the task is done.
+     */
+    private void runWithPermit(Runnable task) {
+        permits.acquireUninterruptibly();
+        boolean interrupted = Thread.interrupted();
+        if (interrupted) {
+            log.warn("Interrupted while waiting for an execution slot, running task before honouring it");
+        }
+
+        try {
+            task.run();
+        } finally {
+            permits.release();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package de.ma.download.controller;
+
+import de.ma.download.storage.ArtifactCacheStats;
+import de.ma.download.storage.ArtifactStore;
+import de.ma.download.storage.CachingArtifactStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Tag(name = "Admin API", description = "Operational endpoints for administrators")
+public class AdminController {
+
+    private final ArtifactStore artifactStore;
+
+    @Operation(summary = "Artifact cache statistics")
+    @GetMapping("/artifact-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ArtifactCacheStats> getArtifactCacheStats() {
+        if (artifactStore instanceof CachingArtifactStore cache) {
+            return ResponseEntity.ok(cache.getStats());
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
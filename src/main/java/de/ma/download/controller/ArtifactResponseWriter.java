@@ -0,0 +1,390 @@
+package de.ma.download.controller;
+
+import de.ma.download.dto.ArtifactDownload;
+import de.ma.download.storage.ArtifactEncoding;
+import de.ma.download.storage.ArtifactStore;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds download responses for stored artifacts.
+ * When the artifact is a local file and the servlet container supports it,
+ * the file is handed to the container's sendfile support so the bytes go
+ * from disk to socket without being copied through the JVM heap.
+ * Otherwise the artifact is streamed with {@link ArtifactStore#transferTo}.
+ * <p>
+ * Supports {@code Range} requests with single and multipart/byteranges
+ * responses, guarded by {@code If-Range} against the artifact's ETag or
+ * Last-Modified date.
+ * <p>
+ * Artifacts stored with a content encoding are sent as-is to clients that
+ * accept the encoding, and decoded on the fly for all others. Ranges are only
+ * served for the stored representation.
+ * <p>
+ * Each representation has a strong ETag derived from its content hash; a
+ * matching {@code If-None-Match} is answered with 304 before the artifact is opened.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ArtifactResponseWriter {
+
+    // Tomcat request attributes for sendfile support
+    static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private final ArtifactStore artifactStore;
+
+    public ResponseEntity<StreamingResponseBody> write(ArtifactDownload job, HttpServletRequest request) {
+        return write(job, request, CacheControl.empty());
+    }
+
+    public ResponseEntity<StreamingResponseBody> write(ArtifactDownload job, HttpServletRequest request,
+                                                       CacheControl cacheControl) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDispositionFormData("attachment", job.getFileName());
+        if (cacheControl.getHeaderValue() != null) {
+            headers.setCacheControl(cacheControl);
+        }
+        if (job.getCompletedAt() != null) {
+            headers.setLastModified(job.getCompletedAt());
+        }
+
+        ArtifactEncoding encoding = job.getContentEncoding();
+        if (encoding != null) {
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+            if (!acceptsEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING), encoding)) {
+                return writeDecoded(job, encoding, request, headers);
+            }
+            headers.set(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+        }
+
+        // From here on the stored bytes are sent unchanged
+        long size = job.getStoredSize() != null ? job.getStoredSize() : job.getFileSize();
+        String etag = "\"" + job.getArtifactKey() + "\"";
+        headers.set(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+        headers.setETag(etag);
+
+        if (isNotModified(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag, job.getCompletedAt())) {
+            headers.setContentType(MediaType.parseMediaType(job.getContentType()));
+            return writeRange(job, request, headers, HttpStatus.OK, 0, size);
+        }
+
+        List<long[]> ranges = resolveRanges(rangeHeader, size);
+        if (ranges == null) {
+            headers.set(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + size);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+        }
+
+        if (ranges.size() == 1) {
+            long start = ranges.getFirst()[0];
+            long end = ranges.getFirst()[1];
+            headers.setContentType(MediaType.parseMediaType(job.getContentType()));
+            headers.set(HttpHeaders.CONTENT_RANGE, contentRange(start, end, size));
+            return writeRange(job, request, headers, HttpStatus.PARTIAL_CONTENT, start, end - start + 1);
+        }
+
+        return writeMultipartRanges(job, headers, ranges, size);
+    }
+
+    private ResponseEntity<StreamingResponseBody> writeRange(ArtifactDownload job, HttpServletRequest request,
+                                                             HttpHeaders headers, HttpStatus status,
+                                                             long start, long length) {
+        String artifactKey = job.getArtifactKey();
+        headers.setContentLength(length);
+
+        Optional<Path> localFile = artifactStore.localPath(artifactKey);
+        if (localFile.isPresent() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, localFile.get().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+            log.debug("Serving artifact {} for job {} via sendfile", artifactKey, job.getJobId());
+            return ResponseEntity.status(status).headers(headers).build();
+        }
+
+        StreamingResponseBody body = outputStream ->
+                artifactStore.transferTo(artifactKey, start, length, Channels.newChannel(outputStream));
+
+        return ResponseEntity.status(status)
+                .headers(headers)
+                .body(body);
+    }
+
+    /**
+     * Stream several artifacts as one ZIP archive. Each entry is copied from the
+     * store as it is read, so the archive is never held in memory.
+     */
+    public ResponseEntity<StreamingResponseBody> writeBundle(List<ArtifactDownload> downloads, String bundleName) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", bundleName);
+
+        StreamingResponseBody body = outputStream -> {
+            Set<String> entryNames = new HashSet<>();
+            ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+            for (ArtifactDownload download : downloads) {
+                ZipEntry entry = new ZipEntry(uniqueEntryName(download.getFileName(), entryNames));
+                if (download.getCompletedAt() != null) {
+                    entry.setTime(download.getCompletedAt().toEpochMilli());
+                }
+                zipOutputStream.putNextEntry(entry);
+                try (InputStream inputStream = openContent(download)) {
+                    inputStream.transferTo(zipOutputStream);
+                }
+                zipOutputStream.closeEntry();
+            }
+            zipOutputStream.finish();
+        };
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+
+    /**
+     * Send the unencoded content to a client that does not accept the stored encoding
+     */
+    private ResponseEntity<StreamingResponseBody> writeDecoded(ArtifactDownload job, ArtifactEncoding encoding,
+                                                               HttpServletRequest request, HttpHeaders headers) {
+        String etag = "\"" + job.getContentHash() + "\"";
+        headers.setETag(etag);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "none");
+
+        if (isNotModified(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        headers.setContentType(MediaType.parseMediaType(job.getContentType()));
+        headers.setContentLength(job.getFileSize());
+
+        StreamingResponseBody body = outputStream -> {
+            try (InputStream inputStream = openContent(job)) {
+                inputStream.transferTo(outputStream);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> writeMultipartRanges(ArtifactDownload job, HttpHeaders headers,
+                                                                       List<long[]> ranges, long size) {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+
+        for (long[] range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n" +
+                    HttpHeaders.CONTENT_TYPE + ": " + job.getContentType() + "\r\n" +
+                    HttpHeaders.CONTENT_RANGE + ": " + contentRange(range[0], range[1], size) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + (range[1] - range[0] + 1);
+        }
+
+        byte[] closingBoundary = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closingBoundary.length;
+
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+        headers.setContentLength(contentLength);
+
+        StreamingResponseBody body = outputStream -> {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                outputStream.write(partHeaders.get(i));
+                artifactStore.transferTo(job.getArtifactKey(), range[0], range[1] - range[0] + 1, target);
+            }
+            outputStream.write(closingBoundary);
+        };
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .body(body);
+    }
+
+    /**
+     * Resolve the requested ranges to inclusive [start, end] offsets.
+     * Ranges starting past the end of the artifact are dropped; the set is
+     * satisfiable as long as one range remains.
+     * @return The ranges, or null if the range set is not satisfiable
+     */
+    private List<long[]> resolveRanges(String rangeHeader, long size) {
+        try {
+            List<HttpRange> httpRanges = HttpRange.parseRanges(rangeHeader);
+            List<long[]> ranges = new ArrayList<>(httpRanges.size());
+            long total = 0;
+            for (HttpRange httpRange : httpRanges) {
+                long start = httpRange.getRangeStart(size);
+                long end = httpRange.getRangeEnd(size);
+                if (start >= size || end < start) {
+                    continue;
+                }
+                total += end - start + 1;
+                ranges.add(new long[]{start, end});
+            }
+            // Reject range sets that would send more than the whole artifact
+            return ranges.isEmpty() || total > size ? null : ranges;
+        } catch (IllegalArgumentException e) {
+            log.debug("Unsatisfiable range '{}' for artifact of {} bytes: {}", rangeHeader, size, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Open the unencoded content of an artifact
+     */
+    private InputStream openContent(ArtifactDownload download) throws IOException {
+        InputStream inputStream = Channels.newInputStream(artifactStore.openChannel(download.getArtifactKey()));
+        ArtifactEncoding encoding = download.getContentEncoding();
+        return encoding != null ? encoding.decode(inputStream) : inputStream;
+    }
+
+    private String uniqueEntryName(String fileName, Set<String> usedNames) {
+        String name = fileName;
+        int extensionIndex = fileName.lastIndexOf('.');
+        String baseName = extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+        String extension = extensionIndex > 0 ? fileName.substring(extensionIndex) : "";
+        for (int i = 1; !usedNames.add(name); i++) {
+            name = baseName + "-" + i + extension;
+        }
+        return name;
+    }
+
+    /**
+     * Evaluate If-None-Match using the weak comparison required for GET requests
+     */
+    private boolean isNotModified(HttpServletRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check whether an Accept-Encoding header allows the given encoding.
+     * An element naming the encoding takes precedence over {@code *}
+     * (RFC 9110, section 12.5.3), so "*;q=0, gzip" still accepts gzip.
+     */
+    private boolean acceptsEncoding(String acceptEncoding, ArtifactEncoding encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double exactQuality = null;
+        Double wildcardQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.trim().split(";");
+            String coding = parts[0].trim();
+            if (coding.equalsIgnoreCase(encoding.getToken())) {
+                exactQuality = quality(parts);
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality(parts);
+            }
+        }
+
+        Double quality = exactQuality != null ? exactQuality : wildcardQuality;
+        return quality != null && quality > 0;
+    }
+
+    /**
+     * The q parameter of an Accept-Encoding element, 1 if absent and 0 if malformed
+     */
+    private static double quality(String[] parts) {
+        double quality = 1.0;
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    quality = Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    quality = 0;
+                }
+            }
+        }
+        return quality;
+    }
+
+    /**
+     * Evaluate an If-Range precondition. A Range header is only honoured when
+     * the validator still matches the current representation.
+     */
+    private boolean ifRangeMatches(String ifRange, String etag, Instant lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range requires a strong comparison
+            return ifRange.equals(etag);
+        }
+
+        if (lastModified == null) {
+            return false;
+        }
+
+        try {
+            Instant date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return date.getEpochSecond() == lastModified.getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private String contentRange(long start, long end, long size) {
+        return BYTES_UNIT + " " + start + "-" + end + "/" + size;
+    }
+}
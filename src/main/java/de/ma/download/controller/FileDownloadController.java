@@ -1,22 +1,27 @@
 package de.ma.download.controller;
 
-import de.ma.download.dto.JobDTO;
+import de.ma.download.dto.ArtifactDownload;
+import de.ma.download.dto.BatchGenerateRequest;
+import de.ma.download.dto.BundleDownloadRequest;
 import de.ma.download.dto.PagedJobResponse;
 import de.ma.download.dto.ReportRequest;
+import de.ma.download.dto.SignedDownloadLink;
+import de.ma.download.security.DownloadToken;
 import de.ma.download.service.FileDownloadService;
 import de.ma.download.service.JobManagementService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.security.Principal;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
@@ -28,6 +33,7 @@ public class FileDownloadController {
 
     private final FileDownloadService fileDownloadService;
     private final JobManagementService jobManagementService;
+    private final ArtifactResponseWriter artifactResponseWriter;
 
     @Operation(summary = "Generate a new file")
     @PostMapping("/generate")
@@ -40,20 +46,42 @@ public class FileDownloadController {
         return ResponseEntity.accepted().body(Map.of("jobId", jobId));
     }
 
+    @Operation(summary = "Generate several files in one transaction")
+    @PostMapping("/generate/batch")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Map<String, List<String>>> generateFiles(
+            @RequestBody @Valid BatchGenerateRequest request,
+            Principal principal) {
+
+        List<String> jobIds = jobManagementService.initiateJobs(request.getRequests(), principal);
+        return ResponseEntity.accepted().body(Map.of("jobIds", jobIds));
+    }
+
     @Operation(summary = "Download generated file")
     @GetMapping("/download/{jobId}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable String jobId) {
-        JobDTO job = fileDownloadService.prepareForDownload(jobId);
+    public ResponseEntity<StreamingResponseBody> downloadFile(@PathVariable String jobId, HttpServletRequest request) {
+        ArtifactDownload download = fileDownloadService.openDownload(jobId);
+        return artifactResponseWriter.write(download, request);
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(job.getContentType()));
-        headers.setContentDispositionFormData("attachment", job.getFileName());
-        headers.setContentLength(job.getFileSize());
+    @Operation(summary = "Download several generated files as a ZIP archive")
+    @PostMapping("/download/bundle")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StreamingResponseBody> downloadBundle(@RequestBody @Valid BundleDownloadRequest request) {
+        List<ArtifactDownload> downloads = fileDownloadService.openBundle(request.getJobIds());
+        return artifactResponseWriter.writeBundle(downloads, "reports-" + System.currentTimeMillis() + ".zip");
+    }
 
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(fileDownloadService.getFileData(jobId));
+    @Operation(summary = "Create a short-lived signed download link")
+    @PostMapping("/download/{jobId}/link")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SignedDownloadLink> createDownloadLink(@PathVariable String jobId) {
+        DownloadToken token = fileDownloadService.issueDownloadToken(jobId);
+        return ResponseEntity.ok(SignedDownloadLink.builder()
+                .url(SignedDownloadController.SIGNED_DOWNLOAD_PATH + "/" + token.getToken())
+                .expiresAt(token.getExpiresAt())
+                .build());
     }
 
     @Operation(summary = "Cancel job")
@@ -70,7 +98,11 @@ public class FileDownloadController {
     public ResponseEntity<PagedJobResponse> getRecentJobs(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
-        return ResponseEntity.ok(jobManagementService.getRecentJobs(page, size));
+        PagedJobResponse response = jobManagementService.getRecentJobs(page, size);
+        // Spring answers 304 Not Modified when If-None-Match matches the ETag
+        return ResponseEntity.ok()
+                .eTag(response.getEtag())
+                .body(response);
     }
 
     @Operation(summary = "Retry failed job")
@@ -0,0 +1,48 @@
+package de.ma.download.controller;
+
+import de.ma.download.security.DownloadClaims;
+import de.ma.download.security.DownloadTokenService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Serves downloads authorised by a signed token instead of a JWT.
+ * Lives outside {@code /api} and has its own security filter chain, so neither
+ * JWT decoding nor a database lookup is needed to authorise the request.
+ */
+@RestController
+@RequestMapping(SignedDownloadController.SIGNED_DOWNLOAD_PATH)
+@RequiredArgsConstructor
+@Tag(name = "Signed Download API", description = "Token-authorised file downloads")
+public class SignedDownloadController {
+
+    public static final String SIGNED_DOWNLOAD_PATH = "/files/signed";
+
+    private final DownloadTokenService downloadTokenService;
+    private final ArtifactResponseWriter artifactResponseWriter;
+
+    @Operation(summary = "Download a file with a signed token")
+    @GetMapping("/{token}")
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable String token, HttpServletRequest request) {
+        DownloadClaims claims = downloadTokenService.verify(token);
+
+        // The URL is a capability for immutable content, so shared caches may keep it until it expires
+        CacheControl cacheControl = CacheControl
+                .maxAge(Duration.between(Instant.now(), claims.getExpiresAt()))
+                .cachePublic();
+
+        return artifactResponseWriter.write(claims.getDownload(), request, cacheControl);
+    }
+}
@@ -0,0 +1,46 @@
+package de.ma.download.controller;
+
+import de.ma.download.dto.SubscriptionDTO;
+import de.ma.download.dto.SubscriptionRequest;
+import de.ma.download.service.ReportSubscriptionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/subscriptions")
+@RequiredArgsConstructor
+@Tag(name = "Subscription API", description = "Endpoints for recurring report generation")
+public class SubscriptionController {
+
+    private final ReportSubscriptionService subscriptionService;
+
+    @Operation(summary = "List the current user's report subscriptions")
+    @GetMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<SubscriptionDTO>> getSubscriptions() {
+        return ResponseEntity.ok(subscriptionService.getSubscriptions());
+    }
+
+    @Operation(summary = "Generate a report on a recurring schedule")
+    @PostMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SubscriptionDTO> subscribe(@RequestBody @Valid SubscriptionRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(subscriptionService.subscribe(request));
+    }
+
+    @Operation(summary = "Delete a report subscription")
+    @DeleteMapping("/{subscriptionId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Void> unsubscribe(@PathVariable String subscriptionId) {
+        subscriptionService.unsubscribe(subscriptionId);
+        return ResponseEntity.noContent().build();
+    }
+}
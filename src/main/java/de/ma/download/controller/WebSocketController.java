@@ -2,10 +2,10 @@ package de.ma.download.controller;
 
 import de.ma.download.dto.websocket.JobStatusUpdateMessage;
 import de.ma.download.dto.websocket.JobSubscriptionRequest;
-import de.ma.download.entity.JobEntity;
 import de.ma.download.exception.JobNotFoundException;
 import de.ma.download.exception.ResourceAccessDeniedException;
 import de.ma.download.repository.JobRepository;
+import de.ma.download.repository.JobSummaryView;
 import de.ma.download.service.UserContextService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -44,7 +44,7 @@ public class WebSocketController {
         log.debug("User {} subscribed to updates for job {}", userId, jobId);
 
         try {
-            JobEntity job = jobRepository.findById(jobId)
+            JobSummaryView job = jobRepository.findSummaryByJobId(jobId)
                     .orElseThrow(() -> new JobNotFoundException(jobId));
 
             boolean isAdmin = userContextService.isPrincipalAdmin(principal);
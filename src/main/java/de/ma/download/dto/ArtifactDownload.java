@@ -0,0 +1,27 @@
+package de.ma.download.dto;
+
+import de.ma.download.storage.ArtifactEncoding;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.time.Instant;
+
+/**
+ * Metadata of a completed job together with the key of its stored artifact,
+ * everything needed to serve a download
+ */
+@Value
+@Builder
+@Jacksonized
+public class ArtifactDownload {
+    String jobId;
+    String fileName;
+    String contentType;
+    Long fileSize;
+    Instant completedAt;
+    String artifactKey;
+    ArtifactEncoding contentEncoding;
+    String contentHash;
+    Long storedSize;
+}
@@ -0,0 +1,26 @@
+package de.ma.download.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Request to generate several reports in one call")
+public class BatchGenerateRequest {
+
+    @NotEmpty(message = "At least one report request is required")
+    @Size(max = 500, message = "A batch can contain at most 500 reports")
+    @Schema(description = "Reports to generate")
+    private List<@NotNull @Valid ReportRequest> requests;
+}
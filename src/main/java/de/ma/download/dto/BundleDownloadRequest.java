@@ -0,0 +1,24 @@
+package de.ma.download.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Request to download several generated files as one ZIP archive")
+public class BundleDownloadRequest {
+
+    @NotEmpty(message = "At least one job ID is required")
+    @Size(max = 50, message = "A bundle can contain at most 50 jobs")
+    @Schema(description = "IDs of completed jobs to include")
+    private List<String> jobIds;
+}
@@ -1,5 +1,6 @@
 package de.ma.download.dto;
 
+import de.ma.download.storage.StoredArtifact;
 import lombok.Builder;
 import lombok.Data;
 
@@ -8,5 +9,5 @@ import lombok.Data;
 public class GeneratedFile {
     private String fileName;
     private String contentType;
-    private byte[] fileData;
+    private StoredArtifact artifact;
 }
@@ -0,0 +1,24 @@
+package de.ma.download.dto;
+
+import de.ma.download.model.FileType;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A queued job handed to a worker for generation
+ */
+@Value
+@Builder
+public class GenerationTask {
+    String jobId;
+    String userId;
+    FileType fileType;
+    ReportRequest request;
+    String resultKey;
+
+    /**
+     * Node holding the job's queue lease, and the claim attempt it holds it for
+     */
+    String leaseOwner;
+    int attempt;
+}
@@ -1,5 +1,6 @@
 package de.ma.download.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -29,4 +30,7 @@ public class PagedJobResponse {
 
     @Schema(description = "Number of items per page")
     private int pageSize;
+
+    @JsonIgnore
+    private String etag;
 }
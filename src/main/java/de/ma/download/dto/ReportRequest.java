@@ -1,10 +1,11 @@
 package de.ma.download.dto;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import de.ma.download.model.FileType;
-import lombok.AllArgsConstructor;
+import de.ma.download.model.OutputFormat;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
@@ -12,9 +13,9 @@ import lombok.experimental.SuperBuilder;
 @Data
 @SuperBuilder
 @NoArgsConstructor
-@AllArgsConstructor
 @JsonTypeInfo(
         use = JsonTypeInfo.Id.NAME,
+        include = JsonTypeInfo.As.EXISTING_PROPERTY,
         property = "type",
         visible = true
 )
@@ -27,8 +28,22 @@ import lombok.experimental.SuperBuilder;
 public abstract class ReportRequest {
     private FileType type;
 
+    /**
+     * Format of the generated file; JSON if not given
+     */
+    private OutputFormat outputFormat;
+
+    protected ReportRequest(FileType type) {
+        this.type = type;
+    }
+
     // Return the file type from the concrete subclass
+    @JsonIgnore
     public FileType getFileType() {
         return type;
     }
+
+    public OutputFormat getOutputFormat() {
+        return outputFormat != null ? outputFormat : OutputFormat.JSON;
+    }
 }
@@ -0,0 +1,23 @@
+package de.ma.download.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Short-lived download link that does not require authentication")
+public class SignedDownloadLink {
+
+    @Schema(description = "Relative URL of the signed download")
+    private String url;
+
+    @Schema(description = "When the link expires")
+    private Instant expiresAt;
+}
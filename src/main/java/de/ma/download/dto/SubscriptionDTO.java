@@ -0,0 +1,44 @@
+package de.ma.download.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.ma.download.model.FileType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "A recurring report subscription")
+public class SubscriptionDTO {
+
+    @Schema(description = "Unique identifier for the subscription")
+    private String subscriptionId;
+
+    @Schema(description = "Type of report generated")
+    private FileType fileType;
+
+    @Schema(description = "Report generated on every run")
+    private ReportRequest report;
+
+    @Schema(description = "Schedule as a cron expression")
+    private String cron;
+
+    @Schema(description = "When the next run starts, including jitter")
+    private Instant nextRunAt;
+
+    @Schema(description = "When the last run started")
+    private Instant lastRunAt;
+
+    @Schema(description = "Job created by the last run")
+    private String lastJobId;
+
+    @Schema(description = "When the subscription was created")
+    private Instant createdAt;
+}
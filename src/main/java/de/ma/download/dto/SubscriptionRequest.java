@@ -0,0 +1,28 @@
+package de.ma.download.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Request to generate a report on a recurring schedule")
+public class SubscriptionRequest {
+
+    @NotNull(message = "Report is required")
+    @Valid
+    @Schema(description = "Report to generate on every run")
+    private ReportRequest report;
+
+    @NotBlank(message = "Cron expression is required")
+    @Schema(description = "Schedule as a cron expression: second minute hour day-of-month month day-of-week",
+            example = "0 0 9 * * MON-FRI")
+    private String cron;
+}
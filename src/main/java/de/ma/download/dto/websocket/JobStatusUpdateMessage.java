@@ -19,6 +19,7 @@ public class JobStatusUpdateMessage {
     private String jobId;
     private FileType fileType;
     private JobStatusEnum status;
+    private Integer progress;
     private Instant updatedAt;
     private String fileName;
     private Long fileSize;
@@ -2,6 +2,7 @@ package de.ma.download.entity;
 
 import de.ma.download.model.FileType;
 import de.ma.download.model.JobStatusEnum;
+import de.ma.download.storage.ArtifactEncoding;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -12,7 +13,11 @@ import java.time.Instant;
 
 @Data
 @Entity
-@Table(name = "file_generation_jobs")
+@Table(name = "file_generation_jobs", indexes = {
+        @Index(name = "idx_jobs_result_key", columnList = "result_key"),
+        @Index(name = "idx_jobs_source_job_id", columnList = "source_job_id"),
+        @Index(name = "idx_jobs_artifact_key", columnList = "artifact_key")
+})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,9 +35,18 @@ public class JobEntity {
     @Column(name = "status", nullable = false)
     private JobStatusEnum status;
 
-    @Lob
-    @Column(name = "file_data")
-    private byte[] fileData;
+    @Column(name = "artifact_key", length = 64)
+    private String artifactKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "content_encoding")
+    private ArtifactEncoding contentEncoding;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "stored_size")
+    private Long storedSize;
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
@@ -55,6 +69,18 @@ public class JobEntity {
     @Column(name = "content_type")
     private String contentType;
 
+    @Column(name = "progress")
+    private Integer progress;
+
+    @Column(name = "result_key", length = 64, updatable = false)
+    private String resultKey;
+
+    /**
+     * Job whose artifact this job receives instead of generating its own
+     */
+    @Column(name = "source_job_id", updatable = false)
+    private String sourceJobId;
+
     @Version
     private Long version;
 }
@@ -0,0 +1,58 @@
+package de.ma.download.entity;
+
+import de.ma.download.model.FileType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Durable work item for a job waiting for or undergoing generation. A row
+ * is leased by the node processing it and removed once the job settles;
+ * rows whose lease expired are picked up again by any node.
+ */
+@Data
+@Entity
+@Table(name = "job_queue", indexes = {
+        @Index(name = "idx_job_queue_enqueued_at", columnList = "enqueued_at")
+})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobQueueEntity {
+
+    @Id
+    @Column(name = "job_id", nullable = false, updatable = false)
+    private String jobId;
+
+    @Column(name = "user_id")
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "file_type", nullable = false)
+    private FileType fileType;
+
+    /**
+     * Report request as JSON
+     */
+    @Column(name = "parameters", columnDefinition = "TEXT")
+    private String parameters;
+
+    @Column(name = "result_key", length = 64)
+    private String resultKey;
+
+    @Column(name = "enqueued_at", nullable = false)
+    private Instant enqueuedAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+}
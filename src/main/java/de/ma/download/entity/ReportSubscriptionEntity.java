@@ -0,0 +1,60 @@
+package de.ma.download.entity;
+
+import de.ma.download.model.FileType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A report a user wants generated on a recurring schedule
+ */
+@Data
+@Entity
+@Table(name = "report_subscriptions", indexes = {
+        @Index(name = "idx_subscriptions_user_id", columnList = "user_id"),
+        @Index(name = "idx_subscriptions_next_run_at", columnList = "next_run_at")
+})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportSubscriptionEntity {
+
+    @Id
+    @Column(name = "subscription_id", nullable = false, updatable = false)
+    private String subscriptionId;
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "file_type", nullable = false, updatable = false)
+    private FileType fileType;
+
+    /**
+     * Report request as JSON
+     */
+    @Column(name = "parameters", columnDefinition = "TEXT", updatable = false)
+    private String parameters;
+
+    @Column(name = "cron_expression", nullable = false)
+    private String cronExpression;
+
+    /**
+     * Next run including jitter; null once the schedule has no more runs
+     */
+    @Column(name = "next_run_at")
+    private Instant nextRunAt;
+
+    @Column(name = "last_run_at")
+    private Instant lastRunAt;
+
+    @Column(name = "last_job_id")
+    private String lastJobId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,44 @@
+package de.ma.download.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Capacity a worker node advertises to the cluster. Rows are refreshed on
+ * every poll; a row that stops being refreshed marks a dead node.
+ */
+@Data
+@Entity
+@Table(name = "worker_nodes")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkerNodeEntity {
+
+    @Id
+    @Column(name = "node_id", nullable = false, updatable = false)
+    private String nodeId;
+
+    /**
+     * Current concurrency limit of the node
+     */
+    @Column(name = "capacity", nullable = false)
+    private int capacity;
+
+    @Column(name = "running", nullable = false)
+    private int running;
+
+    @Column(name = "queued", nullable = false)
+    private int queued;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private Instant heartbeatAt;
+}
@@ -7,13 +7,18 @@ import org.springframework.context.ApplicationEvent;
 @Getter
 public class FileGenerationEvent extends ApplicationEvent {
     private final String jobId;
+    private final String userId;
     private final FileType fileType;
     private final Object parameters;
+    private final String resultKey;
 
-    public FileGenerationEvent(Object source, String jobId, FileType fileType, Object parameters) {
+    public FileGenerationEvent(Object source, String jobId, String userId, FileType fileType, Object parameters,
+                               String resultKey) {
         super(source);
         this.jobId = jobId;
+        this.userId = userId;
         this.fileType = fileType;
         this.parameters = parameters;
+        this.resultKey = resultKey;
     }
 }
@@ -0,0 +1,18 @@
+package de.ma.download.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+@Getter
+public class JobBatchEnqueuedEvent extends ApplicationEvent {
+    private final String userId;
+    private final List<String> jobIds;
+
+    public JobBatchEnqueuedEvent(Object source, String userId, List<String> jobIds) {
+        super(source);
+        this.userId = userId;
+        this.jobIds = jobIds;
+    }
+}
@@ -43,14 +43,19 @@ public class JobEventSourcingService {
             job.setStatus(JobStatusEnum.PENDING);
             job.setCreatedAt(createdEvent.getTimestamp());
             job.setUserId(createdEvent.getUserId());
+            job.setResultKey(createdEvent.getResultKey());
         } else if (event instanceof JobStatusChangedEvent statusEvent) {
             job.setStatus(statusEvent.getNewStatus());
         } else if (event instanceof JobCompletedEvent completedEvent) {
             job.setStatus(JobStatusEnum.COMPLETED);
+            job.setProgress(100);
             job.setFileName(completedEvent.getFileName());
             job.setContentType(completedEvent.getContentType());
             job.setFileSize(completedEvent.getFileSize());
-            job.setFileData(completedEvent.getFileData());
+            job.setArtifactKey(completedEvent.getArtifactKey());
+            job.setContentEncoding(completedEvent.getContentEncoding());
+            job.setContentHash(completedEvent.getContentHash());
+            job.setStoredSize(completedEvent.getStoredSize());
             job.setCompletedAt(completedEvent.getTimestamp());
         } else if (event instanceof JobFailedEvent failedEvent) {
             job.setStatus(JobStatusEnum.FAILED);
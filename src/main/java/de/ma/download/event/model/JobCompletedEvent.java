@@ -1,5 +1,6 @@
 package de.ma.download.event.model;
 
+import de.ma.download.storage.ArtifactEncoding;
 import lombok.Builder;
 import lombok.Value;
 
@@ -12,7 +13,10 @@ public class JobCompletedEvent implements JobEvent {
     String fileName;
     String contentType;
     Long fileSize;
-    byte[] fileData;
+    String artifactKey;
+    ArtifactEncoding contentEncoding;
+    String contentHash;
+    Long storedSize;
     String userId;
     Instant timestamp;
 }
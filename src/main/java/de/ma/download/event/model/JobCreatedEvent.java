@@ -12,5 +12,6 @@ public class JobCreatedEvent implements JobEvent {
     String jobId;
     FileType fileType;
     String userId;
+    String resultKey;
     Instant timestamp;
 }
@@ -17,7 +17,9 @@ import java.time.Instant;
 @AllArgsConstructor
 class JobEventEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // A sequence lets Hibernate batch inserts; IDENTITY forces one round trip per row
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_events_seq")
+    @SequenceGenerator(name = "job_events_seq", sequenceName = "job_events_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "job_id", nullable = false)
@@ -6,5 +6,10 @@ import java.util.List;
 
 public interface JobEventStore {
     void saveEvent(JobEvent event);
+
+    /**
+     * Append several events in the caller's transaction, in one insert batch
+     */
+    void saveEvents(List<JobEvent> events);
     List<JobEvent> getEventsForJob(String jobId);
 }
@@ -8,7 +8,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -45,6 +48,41 @@ class JpaJobEventStore implements JobEventStore {
         }
     }
 
+    @Override
+    @Transactional
+    public void saveEvents(List<JobEvent> events) {
+        Map<String, Long> sequences = new HashMap<>();
+        List<JobEventEntity> entities = new ArrayList<>(events.size());
+
+        for (JobEvent event : events) {
+            JobEventType eventType = determineEventType(event);
+
+            // A created event starts the stream, so it needs no MAX(sequence) lookup
+            long sequence = sequences.compute(event.getJobId(), (jobId, last) -> {
+                if (last != null) {
+                    return last + 1;
+                }
+                if (eventType == JobEventType.JOB_CREATED) {
+                    return 1L;
+                }
+                Long max = eventRepository.findMaxSequenceByJobId(jobId);
+                return max == null ? 1L : max + 1;
+            });
+
+            entities.add(JobEventEntity.builder()
+                    .jobId(event.getJobId())
+                    .eventType(eventType)
+                    .timestamp(event.getTimestamp())
+                    .userId(event.getUserId())
+                    .eventData(eventSerializer.serialize(event))
+                    .sequence(sequence)
+                    .build());
+        }
+
+        eventRepository.saveAll(entities);
+        log.debug("Saved {} events", entities.size());
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<JobEvent> getEventsForJob(String jobId) {
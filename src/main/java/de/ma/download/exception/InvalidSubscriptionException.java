@@ -0,0 +1,14 @@
+package de.ma.download.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a report subscription cannot be accepted
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSubscriptionException extends RuntimeException {
+    public InvalidSubscriptionException(String message) {
+        super(message);
+    }
+}
@@ -1,15 +1,29 @@
 package de.ma.download.exception;
 
+import lombok.Getter;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.time.Duration;
+
 /**
  * Exception thrown when the service is overloaded
  */
+@Getter
 @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
 public class ServiceOverloadedException extends RuntimeException {
+
+    /**
+     * Suggested wait before retrying, or null if unknown
+     */
+    private final Duration retryAfter;
+
     public ServiceOverloadedException(String message) {
+        this(message, null);
+    }
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
         super(message);
+        this.retryAfter = retryAfter;
     }
 }
-
@@ -0,0 +1,14 @@
+package de.ma.download.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a report subscription is not found
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class SubscriptionNotFoundException extends RuntimeException {
+    public SubscriptionNotFoundException(String subscriptionId) {
+        super("Subscription not found with ID: " + subscriptionId);
+    }
+}
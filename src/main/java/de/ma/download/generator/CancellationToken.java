@@ -0,0 +1,92 @@
+package de.ma.download.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cancellation flag of a running job. Tripping the token also interrupts the
+ * worker thread bound to it, so blocking I/O and sleeps return promptly.
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+    private volatile boolean expired;
+    private Thread worker;
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * Bind the token to the current thread
+     */
+    public synchronized void bind() {
+        worker = Thread.currentThread();
+        if (cancelled) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Release the worker thread; clears an interrupt raised by this token
+     */
+    public synchronized void unbind() {
+        if (worker == Thread.currentThread()) {
+            worker = null;
+            if (cancelled) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    public synchronized void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            if (worker != null) {
+                worker.interrupt();
+            }
+            listeners.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Trip the token because the job ran past its deadline
+     */
+    public void expire() {
+        expired = true;
+        cancel();
+    }
+
+    /**
+     * Run an action when the token is tripped, or right away if it already is
+     */
+    public synchronized void onCancel(Runnable listener) {
+        if (cancelled) {
+            listener.run();
+        } else {
+            listeners.add(listener);
+        }
+    }
+
+    public synchronized void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Whether the token was tripped by the job's deadline rather than a cancel
+     */
+    public boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * @throws CancellationException if the job has been cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Job cancelled");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package de.ma.download.generator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes a report as CSV. Each section is a block of rows with its own
+ * header line and the section name in the first column; metadata and
+ * summary fields become {@code field,value} blocks. Nested maps are
+ * flattened to dotted field names.
+ */
+class CsvReportWriter extends FormattedReportWriter {
+
+    private static final String SUMMARY = "summary";
+
+    private final Writer out;
+    private String section;
+    private boolean inSummary;
+    private boolean firstBlock = true;
+
+    CsvReportWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    void begin(Map<String, Object> metadata) throws IOException {
+        startBlock("section", "field", "value");
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            line("metadata", entry.getKey(), entry.getValue());
+        }
+        // Summary fields written right after the metadata share its block
+        inSummary = true;
+    }
+
+    @Override
+    public void writeField(String name, Object value) throws IOException {
+        if (columns != null) {
+            throw new IllegalStateException("Section still open");
+        }
+        if (!inSummary) {
+            startBlock("section", "field", "value");
+            inSummary = true;
+        }
+        writeFlattened(name, value);
+    }
+
+    private void writeFlattened(String name, Object value) throws IOException {
+        if (value instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeFlattened(name + "." + entry.getKey(), entry.getValue());
+            }
+        } else {
+            line(SUMMARY, name, value);
+        }
+    }
+
+    @Override
+    public void startRows(String section, String... columns) throws IOException {
+        super.startRows(section, columns);
+        inSummary = false;
+
+        Object[] header = new Object[columns.length + 1];
+        header[0] = "section";
+        System.arraycopy(columns, 0, header, 1, columns.length);
+        startBlock(header);
+        this.section = section;
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        super.writeRow(values);
+        Object[] cells = new Object[values.length + 1];
+        cells[0] = section;
+        System.arraycopy(values, 0, cells, 1, values.length);
+        line(cells);
+    }
+
+    @Override
+    void finish() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Blocks are separated by an empty line
+     */
+    private void startBlock(Object... header) throws IOException {
+        if (!firstBlock) {
+            out.write("\r\n");
+        }
+        firstBlock = false;
+        line(header);
+    }
+
+    private void line(Object... cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeCell(cells[i]);
+        }
+        out.write("\r\n");
+    }
+
+    private void writeCell(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            out.write('"');
+            out.write(text.replace("\"", "\"\""));
+            out.write('"');
+        } else {
+            out.write(text);
+        }
+    }
+}
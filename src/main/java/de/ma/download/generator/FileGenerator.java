@@ -1,23 +1,54 @@
 package de.ma.download.generator;
 
-import de.ma.download.dto.GeneratedFile;
 import de.ma.download.dto.ReportRequest;
 import de.ma.download.model.FileType;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
- * Type-safe file generator interface that works with specific report request types
+ * Type-safe file generator interface that works with specific report request types.
+ * Generators stream their output into the context instead of returning the content,
+ * so report size is not bounded by heap.
  * @param <T> The specific ReportRequest subclass this generator handles
  */
 public interface FileGenerator<T extends ReportRequest> {
 
     /**
      * Generate a file based on the given report request
-     * @param jobId The job ID
-     * @param userId The user ID
+     * @param context The job context holding the output stream
+     * @param request The typed request parameters
+     * @return The name of the generated file
+     */
+    String generate(GenerationContext context, T request) throws IOException;
+
+    /**
+     * Get the content type of the file generated for the given request;
+     * it is needed before generation starts to pick the storage encoding
+     * @param request The typed request parameters
+     * @return The content type
+     */
+    default String getContentType(T request) {
+        return request.getOutputFormat().getContentType();
+    }
+
+    /**
+     * Get the policy for reusing results of this generator
+     * @return The policy, or null if every request must be generated afresh
+     */
+    default ResultCachePolicy getResultCachePolicy() {
+        return null;
+    }
+
+    /**
+     * Get the request values that determine the generated content; requests
+     * with equal values share a cached result
      * @param request The typed request parameters
-     * @return The generated file
+     * @return The cache-relevant values in a stable order
      */
-    GeneratedFile generate(String jobId, String userId, T request);
+    default List<Object> getResultCacheKey(T request) {
+        return List.of();
+    }
 
     /**
      * Get the file type this generator supports
@@ -1,76 +1,66 @@
 package de.ma.download.generator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.ma.download.dto.FileStatisticsReportRequest;
-import de.ma.download.dto.GeneratedFile;
 import de.ma.download.model.FileType;
+import de.ma.download.repository.JobRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FileStatisticsReportGenerator implements FileGenerator<FileStatisticsReportRequest> {
 
-    private final ObjectMapper objectMapper;
+    private final ReportOutput reportOutput;
+    private final ReportSections reportSections;
+    private final ReportQueries reportQueries;
+    private final JobRepository jobRepository;
 
     @Override
-    public GeneratedFile generate(String jobId, String userId, FileStatisticsReportRequest request) {
-        log.info("Generating File Statistics Report for job: {}, user: {}", jobId, userId);
+    public String generate(GenerationContext context, FileStatisticsReportRequest request) {
+        log.info("Generating File Statistics Report for job: {}, user: {}", context.getJobId(), context.getUserId());
 
         try {
-            boolean includeHistoricalData = request != null &&
-                    request.getIncludeHistoricalData() != null &&
-                    request.getIncludeHistoricalData();
-
-            ObjectNode rootNode = objectMapper.createObjectNode();
-            addReportMetadata(rootNode, "File Statistics Report", userId);
-
-            ObjectNode dataNode = rootNode.putObject("data");
-
-            ObjectNode countsByTypeNode = dataNode.putObject("fileCountsByType");
-            countsByTypeNode.put("PDF", 34);
-            countsByTypeNode.put("CSV", 28);
-            countsByTypeNode.put("EXCEL", 16);
-            countsByTypeNode.put("JSON", 9);
-
-            ObjectNode storageNode = dataNode.putObject("storageUsage");
-            storageNode.put("total", "256MB");
-            storageNode.put("used", "98MB");
-            storageNode.put("available", "158MB");
-
-            ArrayNode fileSizesNode = dataNode.putArray("recentFileSizes");
-            for (int i = 0; i < 5; i++) {
-                ObjectNode fileSize = fileSizesNode.addObject();
-                fileSize.put("fileType", "TYPE_" + i);
-                fileSize.put("avgSize", (i + 1) * 100 + "KB");
-                fileSize.put("maxSize", (i + 1) * 300 + "KB");
+            boolean includeHistoricalData = Boolean.TRUE.equals(request.getIncludeHistoricalData());
+
+            // Sections are independent queries; fetch them concurrently, then write them in order
+            try (SectionScope scope = reportSections.open(context)) {
+                SectionScope.Section<Map<String, Object>> countsByType = scope.fork(() -> loadFileCountsByType(context));
+                SectionScope.Section<Map<String, Object>> storageUsage = scope.fork(this::loadStorageUsage);
+                SectionScope.Section<List<Object[]>> recentFileSizes = scope.fork(this::loadRecentFileSizes);
+                SectionScope.Section<List<Object[]>> historicalData =
+                        includeHistoricalData ? scope.fork(this::loadHistoricalData) : null;
+
+                scope.join();
+
+                reportOutput.write(context, request.getOutputFormat(), "File Statistics Report", report -> {
+                    report.writeField("fileCountsByType", countsByType.get());
+                    report.writeField("storageUsage", storageUsage.get());
+
+                    report.startRows("recentFileSizes", "fileType", "avgSize", "maxSize");
+                    for (Object[] row : recentFileSizes.get()) {
+                        report.writeRow(row);
+                    }
+                    report.endRows();
+
+                    if (historicalData != null) {
+                        report.startRows("historicalData", "month", "filesCreated", "storageUsed");
+                        for (Object[] row : historicalData.get()) {
+                            report.writeRow(row);
+                        }
+                        report.endRows();
+                    }
+                });
             }
 
-            if (includeHistoricalData) {
-                ArrayNode historicalDataNode = dataNode.putArray("historicalData");
-                for (int i = 1; i <= 12; i++) {
-                    ObjectNode monthData = historicalDataNode.addObject();
-                    monthData.put("month", "2024-" + String.format("%02d", i));
-                    monthData.put("filesCreated", 80 + (int)(Math.random() * 40));
-                    monthData.put("storageUsed", 90 + (int)(Math.random() * 20) + "MB");
-                }
-            }
-
-            byte[] fileData = objectMapper.writeValueAsBytes(rootNode);
-
-            return GeneratedFile.builder()
-                    .fileName("file-statistics-report-" + System.currentTimeMillis() + ".json")
-                    .contentType("application/json")
-                    .fileData(fileData)
-                    .build();
+            return reportOutput.fileName("file-statistics-report", request);
 
         } catch (Exception e) {
             log.error("Error generating file statistics report", e);
@@ -78,13 +68,55 @@ public class FileStatisticsReportGenerator implements FileGenerator<FileStatisti
         }
     }
 
-    private void addReportMetadata(ObjectNode rootNode, String reportName, String userId) {
-        ObjectNode metadataNode = rootNode.putObject("metadata");
-        metadataNode.put("reportName", reportName);
-        metadataNode.put("generatedFor", userId);
-        metadataNode.put("generatedAt", LocalDateTime.now()
-                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        metadataNode.put("reportId", UUID.randomUUID().toString());
+    /**
+     * Files generated so far, per report type; bounded by the job's deadline
+     */
+    private Map<String, Object> loadFileCountsByType(GenerationContext context) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        for (Object[] row : reportQueries.read(context, jobRepository::countCompletedByFileType)) {
+            counts.put(row[0].toString(), row[1]);
+        }
+        return counts;
+    }
+
+    private Map<String, Object> loadStorageUsage() {
+        Map<String, Object> storage = new LinkedHashMap<>();
+        storage.put("total", "256MB");
+        storage.put("used", "98MB");
+        storage.put("available", "158MB");
+        return storage;
+    }
+
+    private List<Object[]> loadRecentFileSizes() {
+        List<Object[]> fileSizes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            fileSizes.add(new Object[]{"TYPE_" + i, (i + 1) * 100 + "KB", (i + 1) * 300 + "KB"});
+        }
+        return fileSizes;
+    }
+
+    private List<Object[]> loadHistoricalData() {
+        List<Object[]> months = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            months.add(new Object[]{
+                    "2024-" + String.format("%02d", i),
+                    80 + (int)(Math.random() * 40),
+                    90 + (int)(Math.random() * 20) + "MB"});
+        }
+        return months;
+    }
+
+    @Override
+    public ResultCachePolicy getResultCachePolicy() {
+        return ResultCachePolicy.builder()
+                .scope(ResultCachePolicy.Scope.GLOBAL)
+                .bucket(Duration.ofMinutes(15))
+                .build();
+    }
+
+    @Override
+    public List<Object> getResultCacheKey(FileStatisticsReportRequest request) {
+        return List.of(request != null && Boolean.TRUE.equals(request.getIncludeHistoricalData()));
     }
 
     @Override
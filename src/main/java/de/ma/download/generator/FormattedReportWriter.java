@@ -0,0 +1,45 @@
+package de.ma.download.generator;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Base of the format-specific report writers
+ */
+abstract class FormattedReportWriter implements ReportWriter {
+
+    protected String[] columns;
+
+    /**
+     * Write the report header
+     */
+    abstract void begin(Map<String, Object> metadata) throws IOException;
+
+    /**
+     * Complete the report and flush buffered output without closing it
+     */
+    abstract void finish() throws IOException;
+
+    @Override
+    public void startRows(String section, String... columns) throws IOException {
+        if (this.columns != null) {
+            throw new IllegalStateException("Section still open");
+        }
+        this.columns = columns;
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        if (columns == null) {
+            throw new IllegalStateException("No section started");
+        }
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length + " values, got " + values.length);
+        }
+    }
+
+    @Override
+    public void endRows() throws IOException {
+        columns = null;
+    }
+}
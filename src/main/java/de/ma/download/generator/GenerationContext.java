@@ -0,0 +1,48 @@
+package de.ma.download.generator;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.OutputStream;
+import java.time.Instant;
+
+/**
+ * Per-job state handed to a {@link FileGenerator}
+ */
+@Value
+@Builder
+public class GenerationContext {
+    String jobId;
+    String userId;
+
+    /**
+     * Sink for the generated content; owned by the caller and must not be closed
+     */
+    OutputStream output;
+
+    /**
+     * Tripped when the job is cancelled; long-running generators should check it
+     */
+    CancellationToken cancellation;
+
+    /**
+     * Point in time the job must be finished by, or null if unbounded
+     */
+    Instant deadline;
+
+    /**
+     * Receives the generator's progress
+     */
+    @Builder.Default
+    ProgressSink progress = ProgressSink.NONE;
+
+    /**
+     * Result cache key of the job, or null if the result is not reusable
+     */
+    String resultKey;
+
+    /**
+     * Whether the result is shared by all users and must not name the requester
+     */
+    boolean sharedResult;
+}
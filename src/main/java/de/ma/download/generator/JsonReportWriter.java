@@ -0,0 +1,60 @@
+package de.ma.download.generator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes a report as one JSON document: a metadata object and a data object
+ * holding the summary fields and one array per section
+ */
+class JsonReportWriter extends FormattedReportWriter {
+
+    private final JsonGenerator json;
+
+    JsonReportWriter(JsonGenerator json) {
+        this.json = json;
+    }
+
+    @Override
+    void begin(Map<String, Object> metadata) throws IOException {
+        json.writeStartObject();
+        json.writeObjectField("metadata", metadata);
+        json.writeObjectFieldStart("data");
+    }
+
+    @Override
+    public void writeField(String name, Object value) throws IOException {
+        json.writeObjectField(name, value);
+    }
+
+    @Override
+    public void startRows(String section, String... columns) throws IOException {
+        super.startRows(section, columns);
+        json.writeArrayFieldStart(section);
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        super.writeRow(values);
+        json.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            json.writeObjectField(columns[i], values[i]);
+        }
+        json.writeEndObject();
+    }
+
+    @Override
+    public void endRows() throws IOException {
+        super.endRows();
+        json.writeEndArray();
+    }
+
+    @Override
+    void finish() throws IOException {
+        json.writeEndObject();
+        json.writeEndObject();
+        json.flush();
+    }
+}
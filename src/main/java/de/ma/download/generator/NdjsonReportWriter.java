@@ -0,0 +1,64 @@
+package de.ma.download.generator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes a report as newline-delimited JSON. Every line is one record
+ * tagged with its section: first the metadata, then summary fields and rows.
+ */
+class NdjsonReportWriter extends FormattedReportWriter {
+
+    private final JsonGenerator json;
+    private String section;
+
+    NdjsonReportWriter(JsonGenerator json) {
+        this.json = json;
+        json.setRootValueSeparator(new SerializedString("\n"));
+    }
+
+    @Override
+    void begin(Map<String, Object> metadata) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("section", "metadata");
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            json.writeObjectField(entry.getKey(), entry.getValue());
+        }
+        json.writeEndObject();
+    }
+
+    @Override
+    public void writeField(String name, Object value) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("section", "summary");
+        json.writeStringField("field", name);
+        json.writeObjectField("value", value);
+        json.writeEndObject();
+    }
+
+    @Override
+    public void startRows(String section, String... columns) throws IOException {
+        super.startRows(section, columns);
+        this.section = section;
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        super.writeRow(values);
+        json.writeStartObject();
+        json.writeStringField("section", section);
+        for (int i = 0; i < values.length; i++) {
+            json.writeObjectField(columns[i], values[i]);
+        }
+        json.writeEndObject();
+    }
+
+    @Override
+    void finish() throws IOException {
+        json.writeRaw('\n');
+        json.flush();
+    }
+}
@@ -0,0 +1,21 @@
+package de.ma.download.generator;
+
+/**
+ * Receives progress updates of a running generation. Calls are cheap; the
+ * implementation coalesces them before anything leaves the process.
+ */
+@FunctionalInterface
+public interface ProgressSink {
+
+    /**
+     * No-op sink for callers that do not track progress
+     */
+    ProgressSink NONE = percent -> { };
+
+    /**
+     * Report progress
+     * @param percent Completion in percent (0-100); lower values than
+     *                previously reported are ignored
+     */
+    void report(int percent);
+}
@@ -0,0 +1,118 @@
+package de.ma.download.generator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ma.download.dto.ReportRequest;
+import de.ma.download.model.OutputFormat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streams reports in the format requested, with the metadata header every
+ * report carries. Generators describe their content once through a
+ * {@link ReportWriter} and never hold the whole document in memory.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReportOutput {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${file.generation.output.chunk-size:65536}")
+    private int chunkSize;
+
+    /**
+     * Callback that writes the content of a report
+     */
+    @FunctionalInterface
+    public interface ReportBody {
+        void write(ReportWriter writer) throws IOException;
+    }
+
+    /**
+     * Write a complete report to the context's output
+     * @param context The generation context
+     * @param format The output format
+     * @param reportName Name recorded in the report metadata
+     * @param body Writes the report content
+     */
+    public void write(GenerationContext context, OutputFormat format, String reportName, ReportBody body)
+            throws IOException {
+        context.getCancellation().throwIfCancelled();
+
+        // The output belongs to the artifact writer, which still has to commit it,
+        // so writers are flushed but never closed
+        switch (format) {
+            case JSON -> {
+                JsonGenerator json = createGenerator(context);
+                render(context, new JsonReportWriter(json), reportName, body);
+            }
+            case NDJSON -> {
+                JsonGenerator json = createGenerator(context);
+                render(context, new NdjsonReportWriter(json), reportName, body);
+            }
+            case CSV -> {
+                Writer out = new BufferedWriter(
+                        new OutputStreamWriter(context.getOutput(), StandardCharsets.UTF_8), chunkSize);
+                render(context, new CsvReportWriter(out), reportName, body);
+            }
+        }
+    }
+
+    /**
+     * File name for a report, with the extension of the requested format
+     */
+    public String fileName(String baseName, ReportRequest request) {
+        return baseName + "-" + System.currentTimeMillis() + "." + request.getOutputFormat().getExtension();
+    }
+
+    private JsonGenerator createGenerator(GenerationContext context) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(context.getOutput());
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return json;
+    }
+
+    private void render(GenerationContext context, FormattedReportWriter writer, String reportName, ReportBody body)
+            throws IOException {
+        writer.begin(metadata(reportName, context));
+        body.write(writer);
+        writer.finish();
+
+        context.getProgress().report(95);
+        context.getCancellation().throwIfCancelled();
+    }
+
+    private Map<String, Object> metadata(String reportName, GenerationContext context) {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("reportName", reportName);
+        if (!context.isSharedResult()) {
+            metadata.put("generatedFor", context.getUserId());
+        }
+        metadata.put("generatedAt", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        metadata.put("reportId", reportId(context).toString());
+        return metadata;
+    }
+
+    /**
+     * Reusable results get an id derived from their cache key, so every job
+     * served the same content sees the same id
+     */
+    private UUID reportId(GenerationContext context) {
+        if (context.getResultKey() != null) {
+            return UUID.nameUUIDFromBytes(context.getResultKey().getBytes(StandardCharsets.UTF_8));
+        }
+        return UUID.randomUUID();
+    }
+}
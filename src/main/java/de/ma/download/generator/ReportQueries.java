@@ -0,0 +1,46 @@
+package de.ma.download.generator;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * Runs the database reads of a report in a read-only transaction that ends
+ * at the job's deadline. Spring passes the time left to every JDBC statement
+ * and JPA query of the transaction as query timeout, so the driver aborts a
+ * slow query instead of letting it outlive the job.
+ */
+@Component
+public class ReportQueries {
+
+    private final PlatformTransactionManager transactionManager;
+
+    public ReportQueries(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Run the query within the job's deadline
+     * @throws TransactionTimedOutException if the deadline has passed
+     * @throws org.springframework.dao.QueryTimeoutException if a statement ran past the deadline
+     */
+    public <T> T read(GenerationContext context, Supplier<T> query) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+
+        if (context.getDeadline() != null) {
+            long remaining = Duration.between(Instant.now(), context.getDeadline()).toMillis();
+            if (remaining <= 0) {
+                throw new TransactionTimedOutException("Job deadline passed before the query started");
+            }
+            // Rounded up, so less than a second left does not become no timeout at all
+            template.setTimeout((int) Math.min(Math.ceilDiv(remaining, 1000), Integer.MAX_VALUE));
+        }
+        return template.execute(status -> query.get());
+    }
+}
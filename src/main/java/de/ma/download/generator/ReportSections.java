@@ -0,0 +1,26 @@
+package de.ma.download.generator;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opens {@link SectionScope}s for generators on the shared section executor
+ */
+@Component
+public class ReportSections {
+
+    private final ExecutorService executor;
+
+    public ReportSections(@Qualifier("reportSectionExecutor") ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Open a scope bound to the job's cancellation token and deadline
+     */
+    public SectionScope open(GenerationContext context) {
+        return new SectionScope(executor, context.getCancellation(), context.getDeadline());
+    }
+}
@@ -0,0 +1,35 @@
+package de.ma.download.generator;
+
+import java.io.IOException;
+
+/**
+ * Format-independent sink for report content. Generators emit summary
+ * fields and sections of rows; the writer serializes them as they arrive,
+ * so only the current row is ever held in memory.
+ */
+public interface ReportWriter {
+
+    /**
+     * Write a summary value; maps are written as nested objects where the
+     * format supports it and flattened to dotted names otherwise
+     */
+    void writeField(String name, Object value) throws IOException;
+
+    /**
+     * Start a section of rows
+     * @param section Name of the section
+     * @param columns Column names; every row holds one value per column
+     */
+    void startRows(String section, String... columns) throws IOException;
+
+    /**
+     * Write one row of the current section
+     * @param values Values in column order
+     */
+    void writeRow(Object... values) throws IOException;
+
+    /**
+     * End the current section
+     */
+    void endRows() throws IOException;
+}
@@ -0,0 +1,29 @@
+package de.ma.download.generator;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Declares that a generator's output may be reused for identical requests
+ */
+@Value
+@Builder
+public class ResultCachePolicy {
+
+    public enum Scope {
+        /** Results are reused for the same user only */
+        USER,
+        /** Results do not depend on the user and are shared by everyone */
+        GLOBAL
+    }
+
+    Scope scope;
+
+    /**
+     * Length of the time bucket a result stays reusable in; requests in the
+     * same bucket share a result, the next bucket generates afresh
+     */
+    Duration bucket;
+}
@@ -0,0 +1,116 @@
+package de.ma.download.generator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the independent sections of a report concurrently. Sections are
+ * forked, then {@link #join()} waits for all of them; the first failure,
+ * a cancellation of the job or the job's deadline cancels the remaining
+ * sections. Results are read back in the order the generator writes them.
+ * <p>
+ * Always use in try-with-resources, so no section outlives its report.
+ */
+public class SectionScope implements AutoCloseable {
+
+    private final ExecutorCompletionService<Object> completion;
+    private final CancellationToken cancellation;
+    private final Instant deadline;
+    private final Runnable cancelListener = this::cancelAll;
+    private final List<Future<?>> forks = new ArrayList<>();
+
+    SectionScope(ExecutorService executor, CancellationToken cancellation, Instant deadline) {
+        this.completion = new ExecutorCompletionService<>(executor);
+        this.cancellation = cancellation;
+        this.deadline = deadline;
+        cancellation.onCancel(cancelListener);
+    }
+
+    /**
+     * Start a section
+     * @param task Computes the section's content
+     * @return Handle to read the content after {@link #join()}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Section<T> fork(Callable<T> task) {
+        Future<T> future = (Future<T>) completion.submit((Callable<Object>) task);
+        synchronized (forks) {
+            forks.add(future);
+        }
+        return new Section<>(future);
+    }
+
+    /**
+     * Wait for all forked sections
+     * @throws CancellationException if the job was cancelled
+     * @throws TimeoutException if the job's deadline passed
+     * @throws ExecutionException if a section failed
+     */
+    public void join() throws InterruptedException, ExecutionException, TimeoutException {
+        int pending;
+        synchronized (forks) {
+            pending = forks.size();
+        }
+
+        try {
+            for (; pending > 0; pending--) {
+                Future<Object> done = deadline == null ? completion.take() : poll();
+                cancellation.throwIfCancelled();
+                done.get();
+            }
+        } catch (InterruptedException | ExecutionException | TimeoutException | RuntimeException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    private Future<Object> poll() throws InterruptedException, TimeoutException {
+        long remaining = Duration.between(Instant.now(), deadline).toMillis();
+        Future<Object> done = remaining > 0 ? completion.poll(remaining, TimeUnit.MILLISECONDS) : completion.poll();
+        if (done == null) {
+            throw new TimeoutException("Report sections did not finish before the job deadline");
+        }
+        return done;
+    }
+
+    private void cancelAll() {
+        synchronized (forks) {
+            forks.forEach(future -> future.cancel(true));
+        }
+    }
+
+    @Override
+    public void close() {
+        cancellation.removeListener(cancelListener);
+        cancelAll();
+    }
+
+    /**
+     * Result of a forked section
+     */
+    public static class Section<T> {
+        private final Future<T> future;
+
+        Section(Future<T> future) {
+            this.future = future;
+        }
+
+        /**
+         * @return The section's content
+         * @throws IllegalStateException if called before the scope was joined
+         */
+        public T get() {
+            return future.resultNow();
+        }
+    }
+}
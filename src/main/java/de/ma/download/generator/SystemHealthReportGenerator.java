@@ -1,71 +1,67 @@
 package de.ma.download.generator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import de.ma.download.dto.GeneratedFile;
 import de.ma.download.dto.SystemHealthReportRequest;
 import de.ma.download.model.FileType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class SystemHealthReportGenerator implements FileGenerator<SystemHealthReportRequest> {
 
-    private final ObjectMapper objectMapper;
+    private final ReportOutput reportOutput;
+    private final ReportSections reportSections;
 
     @Override
-    public GeneratedFile generate(String jobId, String userId, SystemHealthReportRequest request) {
-        log.info("Generating System Health Report for job: {}, user: {}", jobId, userId);
+    public String generate(GenerationContext context, SystemHealthReportRequest request) {
+        log.info("Generating System Health Report for job: {}, user: {}", context.getJobId(), context.getUserId());
 
         try {
-            boolean includeDetailedMetrics = request != null &&
-                    request.getIncludeDetailedMetrics() != null &&
-                    request.getIncludeDetailedMetrics();
-
-            ObjectNode rootNode = objectMapper.createObjectNode();
-            addReportMetadata(rootNode, "System Health Report", userId);
-
-            ObjectNode dataNode = rootNode.putObject("data");
-            dataNode.put("cpuUsage", "32%");
-            dataNode.put("memoryUsage", "64%");
-            dataNode.put("diskUsage", "48%");
-            dataNode.put("activeJobs", 12);
-            dataNode.put("failedJobs", 3);
-            dataNode.put("completedJobs", 127);
-
-            ArrayNode servicesNode = dataNode.putArray("services");
+            boolean includeDetailedMetrics = Boolean.TRUE.equals(request.getIncludeDetailedMetrics());
+
             String[] serviceNames = {"Database", "FileStorage", "Authentication", "JobProcessor"};
             String[] serviceStatuses = {"Healthy", "Healthy", "Healthy", "Degraded"};
 
-            for (int i = 0; i < serviceNames.length; i++) {
-                ObjectNode service = servicesNode.addObject();
-                service.put("name", serviceNames[i]);
-                service.put("status", serviceStatuses[i]);
-                service.put("lastChecked", Instant.now().toString());
-
-                if (includeDetailedMetrics) {
-                    service.put("responseTime", Math.random() * 100);
-                    service.put("availability", "99.95%");
-                    service.put("errorRate", "0.05%");
+            // Each service is probed independently; run the checks concurrently
+            try (SectionScope scope = reportSections.open(context)) {
+                List<SectionScope.Section<Object[]>> services = new ArrayList<>();
+                for (int i = 0; i < serviceNames.length; i++) {
+                    String name = serviceNames[i];
+                    String status = serviceStatuses[i];
+                    services.add(scope.fork(() -> checkService(name, status, includeDetailedMetrics)));
                 }
-            }
 
-            byte[] fileData = objectMapper.writeValueAsBytes(rootNode);
+                scope.join();
+
+                reportOutput.write(context, request.getOutputFormat(), "System Health Report", report -> {
+                    report.writeField("cpuUsage", "32%");
+                    report.writeField("memoryUsage", "64%");
+                    report.writeField("diskUsage", "48%");
+                    report.writeField("activeJobs", 12);
+                    report.writeField("failedJobs", 3);
+                    report.writeField("completedJobs", 127);
+
+                    if (includeDetailedMetrics) {
+                        report.startRows("services", "name", "status", "lastChecked",
+                                "responseTime", "availability", "errorRate");
+                    } else {
+                        report.startRows("services", "name", "status", "lastChecked");
+                    }
+                    for (SectionScope.Section<Object[]> service : services) {
+                        report.writeRow(service.get());
+                    }
+                    report.endRows();
+                });
+            }
 
-            return GeneratedFile.builder()
-                    .fileName("system-health-report-" + System.currentTimeMillis() + ".json")
-                    .contentType("application/json")
-                    .fileData(fileData)
-                    .build();
+            return reportOutput.fileName("system-health-report", request);
 
         } catch (Exception e) {
             log.error("Error generating system health report", e);
@@ -73,13 +69,25 @@ public class SystemHealthReportGenerator implements FileGenerator<SystemHealthRe
         }
     }
 
-    private void addReportMetadata(ObjectNode rootNode, String reportName, String userId) {
-        ObjectNode metadataNode = rootNode.putObject("metadata");
-        metadataNode.put("reportName", reportName);
-        metadataNode.put("generatedFor", userId);
-        metadataNode.put("generatedAt", LocalDateTime.now()
-                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        metadataNode.put("reportId", UUID.randomUUID().toString());
+    private Object[] checkService(String name, String status, boolean includeDetailedMetrics) {
+        String lastChecked = Instant.now().toString();
+        if (includeDetailedMetrics) {
+            return new Object[]{name, status, lastChecked, Math.random() * 100, "99.95%", "0.05%"};
+        }
+        return new Object[]{name, status, lastChecked};
+    }
+
+    @Override
+    public ResultCachePolicy getResultCachePolicy() {
+        return ResultCachePolicy.builder()
+                .scope(ResultCachePolicy.Scope.GLOBAL)
+                .bucket(Duration.ofMinutes(5))
+                .build();
+    }
+
+    @Override
+    public List<Object> getResultCacheKey(SystemHealthReportRequest request) {
+        return List.of(request != null && Boolean.TRUE.equals(request.getIncludeDetailedMetrics()));
     }
 
     @Override
@@ -1,9 +1,5 @@
 package de.ma.download.generator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import de.ma.download.dto.GeneratedFile;
 import de.ma.download.dto.UserActivityReportRequest;
 import de.ma.download.model.FileType;
 import lombok.RequiredArgsConstructor;
@@ -11,8 +7,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.UUID;
 
 @Slf4j
@@ -20,39 +14,30 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class UserActivityReportGenerator implements FileGenerator<UserActivityReportRequest> {
 
-    private final ObjectMapper objectMapper;
+    private final ReportOutput reportOutput;
 
     @Override
-    public GeneratedFile generate(String jobId, String userId, UserActivityReportRequest request) {
-        log.info("Generating User Activity Report for job: {}, user: {}", jobId, userId);
+    public String generate(GenerationContext context, UserActivityReportRequest request) {
+        log.info("Generating User Activity Report for job: {}, user: {}", context.getJobId(), context.getUserId());
 
         try {
-            int days = request != null && request.getStartDate() != null
-                    ? request.getStartDate()
-                    : 30;
+            int days = request.getStartDate() != null ? request.getStartDate() : 30;
 
-            ObjectNode rootNode = objectMapper.createObjectNode();
-            addReportMetadata(rootNode, "User Activity Report", userId);
+            reportOutput.write(context, request.getOutputFormat(), "User Activity Report", report -> {
+                report.writeField("timespan", days + " days");
 
-            ObjectNode dataNode = rootNode.putObject("data");
-            dataNode.put("timespan", days + " days");
+                report.startRows("activities", "id", "type", "timestamp", "details");
+                for (int i = 0; i < 10; i++) {
+                    report.writeRow(
+                            UUID.randomUUID().toString(),
+                            "FILE_DOWNLOAD",
+                            Instant.now().minusSeconds(i * 86400L).toString(),
+                            "Downloaded file #" + (i + 1));
+                }
+                report.endRows();
+            });
 
-            ArrayNode activitiesNode = dataNode.putArray("activities");
-            for (int i = 0; i < 10; i++) {
-                ObjectNode activity = activitiesNode.addObject();
-                activity.put("id", UUID.randomUUID().toString());
-                activity.put("type", "FILE_DOWNLOAD");
-                activity.put("timestamp", Instant.now().minusSeconds(i * 86400L).toString());
-                activity.put("details", "Downloaded file #" + (i + 1));
-            }
-
-            byte[] fileData = objectMapper.writeValueAsBytes(rootNode);
-
-            return GeneratedFile.builder()
-                    .fileName("user-activity-report-" + System.currentTimeMillis() + ".json")
-                    .contentType("application/json")
-                    .fileData(fileData)
-                    .build();
+            return reportOutput.fileName("user-activity-report", request);
 
         } catch (Exception e) {
             log.error("Error generating user activity report", e);
@@ -60,15 +45,6 @@ public class UserActivityReportGenerator implements FileGenerator<UserActivityRe
         }
     }
 
-    private void addReportMetadata(ObjectNode rootNode, String reportName, String userId) {
-        ObjectNode metadataNode = rootNode.putObject("metadata");
-        metadataNode.put("reportName", reportName);
-        metadataNode.put("generatedFor", userId);
-        metadataNode.put("generatedAt", LocalDateTime.now()
-                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        metadataNode.put("reportId", UUID.randomUUID().toString());
-    }
-
     @Override
     public FileType getSupportedType() {
         return FileType.USER_ACTIVITY_REPORT;
@@ -1,8 +1,10 @@
 package de.ma.download.mapper;
 
+import de.ma.download.dto.ArtifactDownload;
 import de.ma.download.dto.JobDTO;
 import de.ma.download.dto.JobStatusDTO;
 import de.ma.download.entity.JobEntity;
+import de.ma.download.repository.JobSummaryView;
 import org.mapstruct.*;
 
 @Mapper(componentModel = "spring",
@@ -10,8 +12,13 @@ import org.mapstruct.*;
         nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
 public interface JobMapper {
 
-    @Mapping(target = "fileDataAvailable", expression = "java(entity.getFileData() != null && entity.getFileData().length > 0)")
+    @Mapping(target = "fileDataAvailable", expression = "java(entity.getArtifactKey() != null)")
     JobDTO toJobDTO(JobEntity entity);
 
+    @Mapping(target = "fileDataAvailable", expression = "java(view.getArtifactKey() != null)")
+    JobDTO toJobDTO(JobSummaryView view);
+
+    ArtifactDownload toArtifactDownload(JobSummaryView view);
+
     JobStatusDTO toJobStatusDTO(JobEntity entity);
 }
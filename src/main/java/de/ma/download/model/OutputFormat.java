@@ -0,0 +1,21 @@
+package de.ma.download.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Serialization format of a generated report
+ */
+@Getter
+@RequiredArgsConstructor
+public enum OutputFormat {
+    /** Single JSON document with metadata and data objects */
+    JSON("application/json", "json"),
+    /** Comma-separated rows, one header line per section */
+    CSV("text/csv; charset=utf-8", "csv"),
+    /** One JSON object per line and row */
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+}
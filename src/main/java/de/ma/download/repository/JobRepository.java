@@ -10,20 +10,77 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface JobRepository extends JpaRepository<JobEntity, String> {
     Page<JobEntity> findByUserId(String userId, Pageable pageable);
 
+    Page<JobSummaryView> findSummariesByUserId(String userId, Pageable pageable);
+
+    Optional<JobSummaryView> findSummaryByJobId(String jobId);
+
+    Optional<JobSummaryView> findSummaryByJobIdAndUserId(String jobId, String userId);
+
+    List<JobSummaryView> findSummariesByJobIdIn(Collection<String> jobIds);
+
+    List<JobSummaryView> findSummariesByJobIdInAndUserId(Collection<String> jobIds, String userId);
+
+    Optional<JobSummaryView> findFirstSummaryByResultKeyAndStatusOrderByCompletedAtDesc(
+            String resultKey, JobStatusEnum status);
+
+    @Query("SELECT j.status FROM JobEntity j WHERE j.jobId = :jobId")
+    Optional<JobStatusEnum> findStatusByJobId(@Param("jobId") String jobId);
+
     List<JobEntity> findByUserIdAndFileTypeAndStatusIn(
             String userId, FileType fileType, List<JobStatusEnum> statuses);
 
+    @Query("SELECT j.resultKey FROM JobEntity j WHERE j.userId = :userId AND j.status IN :statuses AND j.resultKey IS NOT NULL")
+    List<String> findResultKeysByUserIdAndStatusIn(
+            @Param("userId") String userId, @Param("statuses") List<JobStatusEnum> statuses);
+
+    List<JobEntity> findBySourceJobIdAndStatus(String sourceJobId, JobStatusEnum status);
+
     List<JobEntity> findByStatusInAndCreatedAtBefore(
             List<JobStatusEnum> statuses, Instant cutoffTime);
 
+    /**
+     * Change the status of a job only while it is still in one of the expected
+     * statuses. Bumps the version, so a concurrent update of the loaded entity
+     * fails its optimistic lock instead of overwriting the new status.
+     * @return 1 if the status was changed, 0 if the job was not in an expected status
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE JobEntity j SET j.status = :newStatus, j.version = j.version + 1 " +
+            "WHERE j.jobId = :jobId AND j.status IN :expected")
+    int updateStatusIfIn(@Param("jobId") String jobId, @Param("newStatus") JobStatusEnum newStatus,
+                         @Param("expected") Collection<JobStatusEnum> expected);
+
+    /**
+     * Record a progress checkpoint without bumping the entity version, so it
+     * never conflicts with status updates of the worker. Only applies while
+     * the job runs, so a late checkpoint cannot overwrite a settled job.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobEntity j SET j.progress = :progress " +
+            "WHERE j.jobId = :jobId AND j.status = de.ma.download.model.JobStatusEnum.IN_PROGRESS")
+    int updateProgress(@Param("jobId") String jobId, @Param("progress") int progress);
+
+    boolean existsByArtifactKey(String artifactKey);
+
+    @Query("SELECT j.fileType, count(j) FROM JobEntity j " +
+            "WHERE j.status = de.ma.download.model.JobStatusEnum.COMPLETED GROUP BY j.fileType ORDER BY j.fileType")
+    List<Object[]> countCompletedByFileType();
+
+    @Query("SELECT DISTINCT j.artifactKey FROM JobEntity j WHERE j.createdAt < :cutoffDate AND j.artifactKey IS NOT NULL")
+    List<String> findArtifactKeysOfJobsOlderThan(@Param("cutoffDate") Instant cutoffDate);
+
     @Modifying
     @Query("DELETE FROM JobEntity j WHERE j.createdAt < :cutoffDate")
     int deleteJobsOlderThan(@Param("cutoffDate") Instant cutoffDate);
@@ -0,0 +1,30 @@
+package de.ma.download.repository;
+
+import de.ma.download.model.FileType;
+import de.ma.download.model.JobStatusEnum;
+import de.ma.download.storage.ArtifactEncoding;
+
+import java.time.Instant;
+
+/**
+ * Closed projection of a job row used by status and listing queries.
+ * Selects only the columns needed to describe a job.
+ */
+public interface JobSummaryView {
+    String getJobId();
+    FileType getFileType();
+    JobStatusEnum getStatus();
+    Integer getProgress();
+    Instant getCreatedAt();
+    Instant getCompletedAt();
+    String getFailureReason();
+    String getUserId();
+    String getFileName();
+    Long getFileSize();
+    String getContentType();
+    String getArtifactKey();
+    ArtifactEncoding getContentEncoding();
+    String getContentHash();
+    Long getStoredSize();
+    Long getVersion();
+}
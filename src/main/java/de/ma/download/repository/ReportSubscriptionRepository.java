@@ -0,0 +1,33 @@
+package de.ma.download.repository;
+
+import de.ma.download.entity.ReportSubscriptionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReportSubscriptionRepository extends JpaRepository<ReportSubscriptionEntity, String> {
+    List<ReportSubscriptionEntity> findByUserIdOrderByCreatedAtAsc(String userId);
+
+    Optional<ReportSubscriptionEntity> findBySubscriptionIdAndUserId(String subscriptionId, String userId);
+
+    long countByUserId(String userId);
+
+    /**
+     * Lock due subscriptions; rows locked by another node are skipped, so
+     * every run is started by exactly one node
+     */
+    @Query(value = """
+            SELECT * FROM report_subscriptions
+             WHERE next_run_at <= :now
+             ORDER BY next_run_at
+             LIMIT :limit
+             FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<ReportSubscriptionEntity> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+}
@@ -0,0 +1,20 @@
+package de.ma.download.security;
+
+import de.ma.download.dto.ArtifactDownload;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.time.Instant;
+
+/**
+ * Payload of a signed download token
+ */
+@Value
+@Builder
+@Jacksonized
+public class DownloadClaims {
+    ArtifactDownload download;
+    String userId;
+    Instant expiresAt;
+}
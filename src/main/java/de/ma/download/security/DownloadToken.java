@@ -0,0 +1,16 @@
+package de.ma.download.security;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * A signed download token and the time it expires
+ */
+@Value
+@Builder
+public class DownloadToken {
+    String token;
+    Instant expiresAt;
+}
@@ -0,0 +1,131 @@
+package de.ma.download.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ma.download.dto.ArtifactDownload;
+import de.ma.download.exception.ResourceAccessDeniedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and verifies signed download tokens.
+ * A token carries everything needed to serve the artifact (job metadata,
+ * owner and artifact hash) and is signed with HMAC-SHA256, so it can be
+ * validated without a database lookup or JWT decoding.
+ */
+@Slf4j
+@Component
+public class DownloadTokenService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec signingKey;
+    private final Duration tokenTtl;
+
+    public DownloadTokenService(ObjectMapper objectMapper,
+                                @Value("${file.download.signing-secret:}") String signingSecret,
+                                @Value("${file.download.link-ttl:PT5M}") Duration tokenTtl) {
+        this.objectMapper = objectMapper;
+        this.tokenTtl = tokenTtl;
+
+        byte[] keyBytes;
+        if (signingSecret == null || signingSecret.isBlank()) {
+            // Links then only validate on this instance and until restart
+            log.warn("No file.download.signing-secret configured, using a random per-instance key");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = signingSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.signingKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
+
+    /**
+     * Issue a token for the given download, bound to the requesting user
+     */
+    public DownloadToken issue(ArtifactDownload download, String userId) {
+        Instant expiresAt = Instant.now().plus(tokenTtl);
+        DownloadClaims claims = DownloadClaims.builder()
+                .download(download)
+                .userId(userId)
+                .expiresAt(expiresAt)
+                .build();
+
+        try {
+            String payload = encode(objectMapper.writeValueAsBytes(claims));
+            String token = payload + "." + encode(sign(payload));
+            return DownloadToken.builder()
+                    .token(token)
+                    .expiresAt(expiresAt)
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to issue download token for job: " + download.getJobId(), e);
+        }
+    }
+
+    /**
+     * Verify a token and return its claims
+     * @throws ResourceAccessDeniedException if the token is malformed, tampered with or expired
+     */
+    public DownloadClaims verify(String token) {
+        int separator = token.indexOf('.');
+        if (separator <= 0) {
+            throw invalidToken();
+        }
+
+        String payload = token.substring(0, separator);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw invalidToken();
+        }
+
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            log.warn("Rejected download token with invalid signature");
+            throw invalidToken();
+        }
+
+        DownloadClaims claims;
+        try {
+            claims = objectMapper.readValue(Base64.getUrlDecoder().decode(payload), DownloadClaims.class);
+        } catch (Exception e) {
+            throw invalidToken();
+        }
+
+        if (claims.getExpiresAt() == null || Instant.now().isAfter(claims.getExpiresAt())) {
+            throw invalidToken();
+        }
+
+        return claims;
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign download token", e);
+        }
+    }
+
+    private String encode(byte[] data) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(data);
+    }
+
+    private ResourceAccessDeniedException invalidToken() {
+        return new ResourceAccessDeniedException("Download link is invalid or has expired");
+    }
+}
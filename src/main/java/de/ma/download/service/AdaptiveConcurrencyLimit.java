@@ -0,0 +1,116 @@
+package de.ma.download.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * AIMD concurrency limit for generation jobs, driven by observed job latency.
+ * While jobs finish close to the best latency seen, the limit grows by one
+ * each time a full window of jobs completes at the limit; when latency
+ * degrades past the tolerance, the limit is cut multiplicatively. The
+ * baseline is a low percentile of a window of recent samples rather than
+ * the minimum, so a single unusually fast job cannot pin it near zero, and
+ * a permanently slower workload is re-learnt once it fills the window.
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final int BASELINE_WINDOW = 32;
+    private static final double BASELINE_PERCENTILE = 0.1;
+
+    @Value("${file.generation.admission.initial-limit:10}")
+    private int limit;
+
+    @Value("${file.generation.admission.min-limit:2}")
+    private int minLimit;
+
+    @Value("${file.generation.admission.max-limit:50}")
+    private int maxLimit;
+
+    @Value("${file.generation.admission.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${file.generation.admission.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    private final double[] recentLatenciesMs = new double[BASELINE_WINDOW];
+    private int recentCount;
+    private int recentNext;
+
+    private double smoothedLatencyMs;
+    private double baselineLatencyMs;
+    private int windowCompletions;
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Keep the limit within what the executor takes without rejecting or
+     * parking jobs
+     */
+    public synchronized void capMaxLimit(int capacity) {
+        if (capacity >= maxLimit) {
+            return;
+        }
+        maxLimit = Math.max(1, capacity);
+        minLimit = Math.min(minLimit, maxLimit);
+        limit = Math.min(limit, maxLimit);
+        log.info("Generation concurrency limit capped at executor capacity {}", maxLimit);
+    }
+
+    /**
+     * Smoothed latency of recent jobs, or zero before the first sample
+     */
+    public synchronized Duration getAverageLatency() {
+        return Duration.ofMillis((long) smoothedLatencyMs);
+    }
+
+    /**
+     * Record the duration of a job that ran to completion
+     * @param latency Time from dispatch to completion, including any wait in the executor
+     * @param inFlight Jobs running when it finished, including itself
+     */
+    public synchronized void onSample(Duration latency, int inFlight) {
+        double sampleMs = Math.max(1, latency.toMillis());
+        smoothedLatencyMs = smoothedLatencyMs == 0 ? sampleMs
+                : smoothedLatencyMs + SMOOTHING * (sampleMs - smoothedLatencyMs);
+        baselineLatencyMs = baseline(sampleMs);
+
+        if (smoothedLatencyMs > baselineLatencyMs * latencyTolerance) {
+            int reduced = Math.max(minLimit, (int) (limit * backoffRatio));
+            if (reduced < limit) {
+                log.info("Generation latency {} ms exceeds baseline {} ms, lowering limit {} -> {}",
+                        (long) smoothedLatencyMs, (long) baselineLatencyMs, limit, reduced);
+                limit = reduced;
+            }
+            windowCompletions = 0;
+            return;
+        }
+
+        // Only grow while the limit is actually the bottleneck
+        if (inFlight >= limit && ++windowCompletions >= limit) {
+            windowCompletions = 0;
+            if (limit < maxLimit) {
+                limit++;
+                log.debug("Generation latency healthy, raising limit to {}", limit);
+            }
+        }
+    }
+
+    private double baseline(double sampleMs) {
+        recentLatenciesMs[recentNext] = sampleMs;
+        recentNext = (recentNext + 1) % BASELINE_WINDOW;
+        recentCount = Math.min(recentCount + 1, BASELINE_WINDOW);
+
+        double[] sorted = Arrays.copyOf(recentLatenciesMs, recentCount);
+        Arrays.sort(sorted);
+        return sorted[(int) (BASELINE_PERCENTILE * (recentCount - 1))];
+    }
+}
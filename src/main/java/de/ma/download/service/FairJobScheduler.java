@@ -0,0 +1,258 @@
+package de.ma.download.service;
+
+import de.ma.download.config.VirtualThreadTaskExecutor;
+import de.ma.download.exception.ServiceOverloadedException;
+import de.ma.download.model.FileType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Admits generation jobs to the executor with per-user deficit round robin.
+ * Every user with queued jobs gets a turn; a job costs the weight of its
+ * {@link FileType}, so a user queueing heavy reports gets fewer of them
+ * started per round than one queueing light ones. How many jobs run at once
+ * is set by the {@link AdaptiveConcurrencyLimit}; the queue holds a multiple
+ * of that limit, and beyond that new jobs are rejected with a retry hint
+ * instead of run on the caller. The limit never exceeds what the executor
+ * accepts, and latency is measured from dispatch, so time spent waiting in
+ * the executor counts against it.
+ */
+@Slf4j
+@Component
+public class FairJobScheduler {
+
+    private final TaskExecutor executor;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final TaskScheduler taskScheduler;
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+    private final Map<FileType, Integer> costs = new EnumMap<>(FileType.class);
+
+    private final Map<String, UserQueue> queuesByUser = new HashMap<>();
+    private final Deque<UserQueue> activeQueues = new ArrayDeque<>();
+    private int queued;
+    private int running;
+
+    @Value("${file.generation.admission.queue-factor:10}")
+    private int queueFactor;
+
+    @Value("${file.generation.scheduler.max-queued:500}")
+    private int maxQueued;
+
+    @Value("${file.generation.scheduler.quantum:1}")
+    private int quantum;
+
+    @Value("${file.generation.scheduler.rejection-retry-delay:PT1S}")
+    private Duration rejectionRetryDelay;
+
+    public FairJobScheduler(@Qualifier("fileGenerationTaskExecutor") TaskExecutor executor,
+                            AdaptiveConcurrencyLimit concurrencyLimit,
+                            TaskScheduler taskScheduler,
+                            Environment environment) {
+        this.executor = executor;
+        this.concurrencyLimit = concurrencyLimit;
+        this.taskScheduler = taskScheduler;
+        concurrencyLimit.capMaxLimit(capacityOf(executor));
+        for (FileType fileType : FileType.values()) {
+            costs.put(fileType, Math.max(1, environment.getProperty(
+                    "file.generation.scheduler.cost." + fileType.name(), Integer.class, 1)));
+        }
+    }
+
+    /**
+     * Fail fast if the queue is full, before a job is persisted. Uses only
+     * in-memory counters, so it is cheap enough for every request.
+     * @throws ServiceOverloadedException if no more jobs can be queued
+     */
+    public synchronized void checkCapacity() {
+        int limit = concurrencyLimit.getLimit();
+        if (queued >= Math.min(maxQueued, limit * queueFactor)) {
+            // Roughly the time until the queue ahead of a new job has drained
+            Duration retryAfter = concurrencyLimit.getAverageLatency().multipliedBy(queued / limit + 1);
+            throw new ServiceOverloadedException(
+                    "System is currently processing too many jobs. Please try again later.", retryAfter);
+        }
+    }
+
+    /**
+     * Queue a job for execution
+     * @param task Runs the job and tells whether it ran to completion; only
+     *             those runs train the concurrency limit, as a cancelled or
+     *             failed job says nothing about how long a generation takes
+     * @throws ServiceOverloadedException if the queue is full
+     */
+    public void submit(String jobId, String userId, FileType fileType, BooleanSupplier task) {
+        synchronized (this) {
+            checkCapacity();
+
+            UserQueue queue = queuesByUser.computeIfAbsent(userId, UserQueue::new);
+            if (queue.jobs.isEmpty()) {
+                activeQueues.addLast(queue);
+            }
+            queue.jobs.addLast(new ScheduledJob(jobId, userId, costs.get(fileType), task));
+            queued++;
+
+            log.debug("Queued job {} for user {} ({} queued, {} running)", jobId, userId, queued, running);
+        }
+        dispatch();
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    private void dispatch() {
+        while (true) {
+            ScheduledJob job;
+            synchronized (this) {
+                if (running >= concurrencyLimit.getLimit() || queued == 0) {
+                    return;
+                }
+                job = next();
+                queued--;
+                running++;
+            }
+
+            long dispatched = System.nanoTime();
+            try {
+                executor.execute(() -> run(job, dispatched));
+            } catch (RuntimeException e) {
+                log.error("Executor rejected job {}, requeueing", job.jobId, e);
+                boolean idle;
+                synchronized (this) {
+                    running--;
+                    requeueFirst(job);
+                    idle = running == 0;
+                }
+                if (idle) {
+                    // No finishing job will dispatch again
+                    scheduleRetry();
+                }
+                return;
+            }
+        }
+    }
+
+    private void run(ScheduledJob job, long dispatched) {
+        boolean completed = false;
+        try {
+            completed = job.task.getAsBoolean();
+        } finally {
+            synchronized (this) {
+                if (completed) {
+                    concurrencyLimit.onSample(Duration.ofNanos(System.nanoTime() - dispatched), running);
+                }
+                running--;
+            }
+            dispatch();
+        }
+    }
+
+    private void scheduleRetry() {
+        if (retryScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                retryScheduled.set(false);
+                dispatch();
+            }, Instant.now().plus(rejectionRetryDelay));
+        }
+    }
+
+    /**
+     * Put a job the executor rejected back at the head of the line, refunding
+     * its cost so the user does not lose the turn it already paid for
+     */
+    private void requeueFirst(ScheduledJob job) {
+        UserQueue queue = queuesByUser.computeIfAbsent(job.userId, UserQueue::new);
+        if (queue.jobs.isEmpty()) {
+            activeQueues.addFirst(queue);
+        }
+        queue.jobs.addFirst(job);
+        queue.deficit += job.cost;
+        queued++;
+    }
+
+    /**
+     * Jobs the executor runs at once without rejecting or parking them. The
+     * pool's queue only bridges a finishing thread and the job dispatched
+     * in its place; a limit counting on it would park jobs there.
+     */
+    private static int capacityOf(TaskExecutor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            return pool.getMaxPoolSize();
+        }
+        if (executor instanceof VirtualThreadTaskExecutor virtual) {
+            return virtual.getMaxConcurrency();
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Deficit round robin: the head user runs jobs while its deficit covers
+     * their cost, then goes to the back of the line with a fresh quantum.
+     */
+    private ScheduledJob next() {
+        while (true) {
+            UserQueue queue = activeQueues.peekFirst();
+            ScheduledJob head = queue.jobs.peekFirst();
+
+            if (queue.deficit < head.cost) {
+                queue.deficit += quantum;
+                activeQueues.addLast(activeQueues.removeFirst());
+                continue;
+            }
+
+            queue.deficit -= head.cost;
+            queue.jobs.removeFirst();
+            if (queue.jobs.isEmpty()) {
+                // Idle users do not bank credit
+                queue.deficit = 0;
+                activeQueues.removeFirst();
+                queuesByUser.remove(queue.userId);
+            }
+            return head;
+        }
+    }
+
+    private static class UserQueue {
+        private final String userId;
+        private final Deque<ScheduledJob> jobs = new ArrayDeque<>();
+        private int deficit;
+
+        UserQueue(String userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static class ScheduledJob {
+        private final String jobId;
+        private final String userId;
+        private final int cost;
+        private final BooleanSupplier task;
+
+        ScheduledJob(String jobId, String userId, int cost, BooleanSupplier task) {
+            this.jobId = jobId;
+            this.userId = userId;
+            this.cost = cost;
+            this.task = task;
+        }
+    }
+}
@@ -1,19 +1,29 @@
 package de.ma.download.service;
 
-import de.ma.download.dto.JobDTO;
-import de.ma.download.entity.JobEntity;
+import de.ma.download.dto.ArtifactDownload;
 import de.ma.download.exception.FileNotReadyException;
 import de.ma.download.exception.JobNotFoundException;
 import de.ma.download.exception.ResourceAccessDeniedException;
 import de.ma.download.mapper.JobMapper;
 import de.ma.download.model.JobStatusEnum;
 import de.ma.download.repository.JobRepository;
+import de.ma.download.repository.JobSummaryView;
+import de.ma.download.security.DownloadToken;
+import de.ma.download.security.DownloadTokenService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -23,49 +33,62 @@ public class FileDownloadService {
     private final JobRepository jobRepository;
     private final JobMapper jobMapper;
     private final UserContextService userContextService;
+    private final DownloadTokenService downloadTokenService;
+
+    /**
+     * Resolve a download in a single query. The job is looked up together with
+     * the ownership condition; admins bypass the owner filter.
+     */
+    @Transactional(readOnly = true)
+    public ArtifactDownload openDownload(String jobId, Principal principal) {
+        String currentUserId;
+        boolean isAdmin;
+
+        if (principal != null) {
+            currentUserId = userContextService.getUserIdFromPrincipal(principal);
+            isAdmin = userContextService.isPrincipalAdmin(principal);
+        } else {
+            currentUserId = userContextService.getCurrentUserId();
+            isAdmin = userContextService.isCurrentUserAdmin();
+        }
 
-    @Transactional
-    public JobDTO prepareForDownload(String jobId, Principal principal) {
-        JobEntity job = jobRepository.findById(jobId)
-                .orElseThrow(() -> new JobNotFoundException(jobId));
+        Optional<JobSummaryView> result = isAdmin ?
+                jobRepository.findSummaryByJobId(jobId) :
+                jobRepository.findSummaryByJobIdAndUserId(jobId, currentUserId);
 
-        verifyOwnership(job, principal);
+        JobSummaryView job = result.orElseThrow(() -> {
+            // Only the failure path needs to tell a foreign job from a missing one
+            if (jobRepository.existsById(jobId)) {
+                log.warn("Access denied: User {} attempted to download job {}", currentUserId, jobId);
+                return new ResourceAccessDeniedException("You are not authorized to access this job");
+            }
+            return new JobNotFoundException(jobId);
+        });
 
         if (job.getStatus() != JobStatusEnum.COMPLETED) {
             throw new FileNotReadyException(jobId);
         }
 
-        return jobMapper.toJobDTO(job);
-    }
-
-    @Transactional
-    public JobDTO prepareForDownload(String jobId) {
-        return prepareForDownload(jobId, null);
-    }
-
-    @Transactional
-    public byte[] getFileData(String jobId, Principal principal) {
-        JobEntity job = jobRepository.findById(jobId)
-                .orElseThrow(() -> new JobNotFoundException(jobId));
-
-        verifyOwnership(job, principal);
-
-        if (job.getFileData() == null || job.getFileData().length == 0) {
+        if (job.getArtifactKey() == null) {
             throw new IllegalStateException("No file data available for job: " + jobId);
         }
 
-        log.info("File download initiated for job: {}, size: {} bytes",
-                jobId, job.getFileSize());
+        log.info("File download initiated for job: {}, size: {} bytes", jobId, job.getFileSize());
 
-        return job.getFileData();
+        return jobMapper.toArtifactDownload(job);
     }
 
-    @Transactional
-    public byte[] getFileData(String jobId) {
-        return getFileData(jobId, null);
+    @Transactional(readOnly = true)
+    public ArtifactDownload openDownload(String jobId) {
+        return openDownload(jobId, null);
     }
 
-    private void verifyOwnership(JobEntity job, Principal principal) {
+    /**
+     * Resolve several downloads for a bundle with one query and one ownership check.
+     * The result keeps the order of the requested IDs.
+     */
+    @Transactional(readOnly = true)
+    public List<ArtifactDownload> openBundle(List<String> jobIds, Principal principal) {
         String currentUserId;
         boolean isAdmin;
 
@@ -77,10 +100,56 @@ public class FileDownloadService {
             isAdmin = userContextService.isCurrentUserAdmin();
         }
 
-        if (!currentUserId.equals(job.getUserId()) && !isAdmin) {
-            log.warn("Access denied: User {} attempted to access job {} owned by {}",
-                    currentUserId, job.getJobId(), job.getUserId());
-            throw new ResourceAccessDeniedException("You are not authorized to access this job");
+        Set<String> uniqueIds = new LinkedHashSet<>(jobIds);
+        List<JobSummaryView> jobs = isAdmin ?
+                jobRepository.findSummariesByJobIdIn(uniqueIds) :
+                jobRepository.findSummariesByJobIdInAndUserId(uniqueIds, currentUserId);
+
+        Map<String, JobSummaryView> jobsById = jobs.stream()
+                .collect(Collectors.toMap(JobSummaryView::getJobId, Function.identity()));
+
+        List<ArtifactDownload> downloads = new ArrayList<>(uniqueIds.size());
+        for (String jobId : uniqueIds) {
+            JobSummaryView job = jobsById.get(jobId);
+            if (job == null) {
+                if (jobRepository.existsById(jobId)) {
+                    log.warn("Access denied: User {} attempted to bundle job {}", currentUserId, jobId);
+                    throw new ResourceAccessDeniedException("You are not authorized to access job " + jobId);
+                }
+                throw new JobNotFoundException(jobId);
+            }
+            if (job.getStatus() != JobStatusEnum.COMPLETED || job.getArtifactKey() == null) {
+                throw new FileNotReadyException(jobId);
+            }
+            downloads.add(jobMapper.toArtifactDownload(job));
         }
+
+        log.info("Bundle download initiated for {} jobs by user {}", downloads.size(), currentUserId);
+
+        return downloads;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ArtifactDownload> openBundle(List<String> jobIds) {
+        return openBundle(jobIds, null);
+    }
+
+    /**
+     * Issue a signed, short-lived token for downloading a completed job's file.
+     * Access is checked once here; the token itself is validated without a database lookup.
+     */
+    @Transactional(readOnly = true)
+    public DownloadToken issueDownloadToken(String jobId, Principal principal) {
+        ArtifactDownload download = openDownload(jobId, principal);
+        String userId = principal != null ?
+                userContextService.getUserIdFromPrincipal(principal) :
+                userContextService.getCurrentUserId();
+
+        return downloadTokenService.issue(download, userId);
+    }
+
+    @Transactional(readOnly = true)
+    public DownloadToken issueDownloadToken(String jobId) {
+        return issueDownloadToken(jobId, null);
     }
 }
@@ -1,20 +1,29 @@
 package de.ma.download.service;
 
 import de.ma.download.dto.GeneratedFile;
+import de.ma.download.dto.GenerationTask;
 import de.ma.download.dto.ReportRequest;
 import de.ma.download.entity.JobEntity;
-import de.ma.download.event.FileGenerationEvent;
 import de.ma.download.exception.JobNotFoundException;
+import de.ma.download.exception.ServiceOverloadedException;
+import de.ma.download.generator.CancellationToken;
 import de.ma.download.generator.FileGenerator;
+import de.ma.download.generator.GenerationContext;
 import de.ma.download.generator.GeneratorRegistry;
+import de.ma.download.generator.ProgressSink;
 import de.ma.download.model.FileType;
 import de.ma.download.model.JobStatusEnum;
+import de.ma.download.storage.ArtifactWriter;
+import de.ma.download.storage.ArtifactWriterFactory;
+import de.ma.download.storage.StoredArtifact;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.event.TransactionPhase;
-import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 @Slf4j
 @Service
@@ -23,64 +32,276 @@ public class FileGenerationService {
 
     private final GeneratorRegistry generatorRegistry;
     private final JobCommandService jobCommandService;
+    private final ArtifactWriterFactory artifactWriterFactory;
+    private final JobCancellationRegistry cancellationRegistry;
+    private final FairJobScheduler fairJobScheduler;
+    private final ResultCacheService resultCacheService;
+    private final GenerationSingleFlight singleFlight;
+    private final JobProgressTracker progressTracker;
+    private final JobDeadlineWatchdog deadlineWatchdog;
+    private final JobQueue jobQueue;
+
+    /**
+     * Process a job claimed from the queue: complete it from the result cache,
+     * attach it to an identical generation in flight, or schedule it
+     * @param task The claimed job
+     * @param onSettled Called once the job has reached a final state on this node
+     * @param onReleased Called instead if a job that waited on an identical
+     *        generation cannot be scheduled on its own; the caller should return
+     *        it to the queue
+     * @throws ServiceOverloadedException if the scheduler cannot take the job;
+     *         the caller should return it to the queue
+     */
+    public void process(GenerationTask task, Runnable onSettled, Runnable onReleased) {
+        log.info("Processing file generation for job: {}", task.getJobId());
+
+        if (task.getResultKey() != null && completeFromCache(task)) {
+            onSettled.run();
+            return;
+        }
 
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    @Async("fileGenerationTaskExecutor")
-    public void handleFileGenerationEvent(FileGenerationEvent event) {
-        String jobId = event.getJobId();
-        log.info("Received file generation event for job: {}", jobId);
-        generateFile(jobId, event.getFileType(), event.getParameters());
+        startGeneration(task, onSettled, onReleased);
     }
 
-    public void generateFile(String jobId, FileType fileType, Object parameters) {
-        try {
-            JobEntity job = jobCommandService.updateJobStatus(jobId, JobStatusEnum.IN_PROGRESS);
-            String userId = job.getUserId();
+    /**
+     * Queue the job's generation, or attach it to an identical generation
+     * already in flight
+     */
+    private void startGeneration(GenerationTask task, Runnable onSettled, Runnable onReleased) {
+        String jobId = task.getJobId();
+        String resultKey = task.getResultKey();
 
-            log.info("Starting file generation for job: {}, user: {}", jobId, userId);
+        if (resultKey != null) {
+            CompletableFuture<GeneratedFile> leader = singleFlight.follow(resultKey);
+            if (leader != null) {
+                log.info("Job {} attached to in-flight generation of an identical request", jobId);
+                leader.thenAccept(result -> completeFollower(task, result, onSettled, onReleased));
+                return;
+            }
+        }
 
+        try {
+            fairJobScheduler.submit(jobId, task.getUserId(), task.getFileType(), () -> {
+                GeneratedFile result = null;
+                try {
+                    result = generateFile(task);
+                } finally {
+                    if (resultKey != null) {
+                        singleFlight.settle(resultKey, result);
+                    }
+                    onSettled.run();
+                }
+                return result != null;
+            });
+        } catch (ServiceOverloadedException e) {
+            if (resultKey != null) {
+                singleFlight.settle(resultKey, null);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Complete a job that waited on an identical generation
+     */
+    private void completeFollower(GenerationTask task, GeneratedFile result, Runnable onSettled,
+                                  Runnable onReleased) {
+        String jobId = task.getJobId();
+        Predicate<JobEntity> stillWaiting = unsettled().and(leaseHeld(task));
+        try {
             if (jobCommandService.isJobCancelled(jobId)) {
-                log.info("Job cancelled before generation: {}", jobId);
+                log.info("Job cancelled while waiting for identical generation: {}", jobId);
+                onSettled.run();
+                return;
+            }
+
+            if (result == null) {
+                // The leader was cancelled or failed; generate this job on its own
+                startGeneration(task, onSettled, onReleased);
                 return;
             }
 
+            // Checked again when completing, in case the job was cancelled since
+            if (jobCommandService.completeJob(jobId, result, stillWaiting) == null) {
+                log.info("Job {} settled while waiting for identical generation, not completing it", jobId);
+            } else {
+                log.info("Job {} completed from coalesced generation, artifact: {}",
+                        jobId, result.getArtifact().getKey());
+            }
+            onSettled.run();
+        } catch (ServiceOverloadedException e) {
+            // Not a failure of the job; another node or a later poll picks it up
+            log.info("Scheduler full, returning coalesced job {} to the queue", jobId);
+            onReleased.run();
+        } catch (Exception e) {
+            log.error("Failed to complete coalesced job: {}", jobId, e);
+            try {
+                jobCommandService.failJob(jobId, e.getMessage(), stillWaiting);
+            } catch (Exception ex) {
+                log.error("Failed to mark job as failed: {}", jobId, ex);
+            }
+            onSettled.run();
+        }
+    }
+
+    /**
+     * Complete a job with the artifact of an earlier identical request
+     * @return true if a cached result was found
+     */
+    private boolean completeFromCache(GenerationTask task) {
+        String jobId = task.getJobId();
+        try {
+            Optional<GeneratedFile> cached = resultCacheService.findCachedResult(task.getResultKey());
+            if (cached.isEmpty()) {
+                return false;
+            }
+
+            if (jobCommandService.completeJob(jobId, cached.get(), unsettled().and(leaseHeld(task))) == null) {
+                log.info("Job {} was cancelled or taken over, not completing it from result cache", jobId);
+            } else {
+                log.info("Job {} completed from result cache, artifact: {}",
+                        jobId, cached.get().getArtifact().getKey());
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Result cache lookup failed for job {}, generating instead", jobId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Generate the file of a job and complete it, as long as this node still
+     * holds the job's lease
+     * @return The generated file, or null if the job was cancelled, failed or taken over
+     */
+    public GeneratedFile generateFile(GenerationTask task) {
+        String jobId = task.getJobId();
+        FileType fileType = task.getFileType();
+        String resultKey = task.getResultKey();
+        // A cancel keeps the lease, so the status is checked along with it
+        Predicate<JobEntity> stillOwned = unsettled().and(leaseHeld(task));
+
+        CancellationToken cancellation = cancellationRegistry.register(jobId);
+        JobDeadlineWatchdog.Watch watch = null;
+        try {
+            // A cancel committed before this worker registered is only visible in the database
+            JobEntity job = cancellation.isCancelled() ? null : jobCommandService.startJob(jobId);
+            if (job == null) {
+                log.info("Job cancelled before generation: {}", jobId);
+                return null;
+            }
+
+            String userId = job.getUserId();
+
+            log.info("Starting file generation for job: {}, user: {}", jobId, userId);
+            watch = deadlineWatchdog.watch(jobId, cancellation, deadlineWatchdog.getTimeout(fileType));
+            ProgressSink progress = progressTracker.start(job);
+
             // Get the appropriate generator
             FileGenerator<ReportRequest> generator = generatorRegistry.getGenerator(fileType);
 
             // Cast parameters to the expected type (which will be a ReportRequest subclass)
-            ReportRequest request = parameters instanceof ReportRequest ?
-                    (ReportRequest) parameters :
-                    createDefaultRequest(fileType);
+            ReportRequest request = task.getRequest() != null ? task.getRequest() : createDefaultRequest(fileType);
 
-            simulateProcessingTime(jobId);
+            simulateProcessingTime(progress);
+            cancellation.throwIfCancelled();
 
-            if (jobCommandService.isJobCancelled(jobId)) {
-                log.info("Job cancelled during generation: {}", jobId);
-                return;
-            }
+            // Stream the file straight into the artifact store; an uncommitted writer discards its content
+            String contentType = generator.getContentType(request);
+            GeneratedFile generatedFile;
+            try (ArtifactWriter writer = artifactWriterFactory.open(contentType)) {
+                GenerationContext context = GenerationContext.builder()
+                        .jobId(jobId)
+                        .userId(userId)
+                        .output(writer.getOutputStream())
+                        .cancellation(cancellation)
+                        .deadline(watch.getDeadline())
+                        .progress(progress)
+                        .resultKey(resultKey)
+                        .sharedResult(resultKey != null && resultCacheService.isShared(request))
+                        .build();
 
-            // Generate the file using the type-safe approach
-            GeneratedFile generatedFile = generator.generate(jobId, userId, request);
+                String fileName = generator.generate(context, request);
+                cancellation.throwIfCancelled();
 
-            if (jobCommandService.isJobCancelled(jobId)) {
-                log.info("Job cancelled after generation: {}", jobId);
-                return;
+                generatedFile = GeneratedFile.builder()
+                        .fileName(fileName)
+                        .contentType(contentType)
+                        .artifact(writer.commit())
+                        .build();
             }
 
-            jobCommandService.completeJob(jobId, generatedFile);
+            // Stop accepting interrupts and progress before touching the database again
+            cancellationRegistry.unregister(jobId, cancellation);
+            progressTracker.stop(jobId);
+            if (!watch.release() || cancellation.isCancelled()) {
+                settleInterrupted(jobId, watch, stillOwned);
+                return null;
+            }
 
-            log.info("File generation completed: {}, size: {} bytes, type: {}",
-                    jobId, generatedFile.getFileData().length, generatedFile.getContentType());
+            if (jobCommandService.completeJob(jobId, generatedFile, stillOwned) == null) {
+                // The artifact is left to the orphan sweep, as an identical job may reference it meanwhile
+                log.warn("Job {} was cancelled or taken over by another node, discarding its result", jobId);
+                return null;
+            }
 
+            StoredArtifact artifact = generatedFile.getArtifact();
+            log.info("File generation completed: {}, size: {} bytes ({} stored), type: {}, artifact: {}",
+                    jobId, artifact.getContentLength(), artifact.getSize(),
+                    generatedFile.getContentType(), artifact.getKey());
+            return generatedFile;
+
+        } catch (CancellationException e) {
+            cancellationRegistry.unregister(jobId, cancellation);
+            progressTracker.stop(jobId);
+            settleInterrupted(jobId, watch, stillOwned);
+            return null;
         } catch (JobNotFoundException e) {
             log.error("Job not found during generation: {}", jobId, e);
+            return null;
         } catch (Exception e) {
+            cancellationRegistry.unregister(jobId, cancellation);
+            if (cancellation.isCancelled() || (watch != null && !watch.release())) {
+                // Interrupted I/O surfaces as an arbitrary exception
+                progressTracker.stop(jobId);
+                settleInterrupted(jobId, watch, stillOwned);
+                return null;
+            }
+
             log.error("Error during file generation: {}", jobId, e);
+            progressTracker.stop(jobId);
             try {
-                jobCommandService.failJob(jobId, e.getMessage());
+                jobCommandService.failJob(jobId, e.getMessage(), stillOwned);
             } catch (Exception ex) {
                 log.error("Failed to mark job as failed: {}", jobId, ex);
             }
+            return null;
+        } finally {
+            if (watch != null) {
+                watch.release();
+            }
+            cancellationRegistry.unregister(jobId, cancellation);
+            progressTracker.stop(jobId);
+        }
+    }
+
+    /**
+     * Fail a job its deadline interrupted; a cancelled job was already settled
+     * by its cancel. Which one happened is decided by the watch, as the token
+     * may not be marked expired yet when the watchdog has claimed the job.
+     */
+    private void settleInterrupted(String jobId, JobDeadlineWatchdog.Watch watch, Predicate<JobEntity> stillOwned) {
+        if (watch == null || watch.release()) {
+            log.info("Job {} cancelled during generation", jobId);
+            return;
+        }
+
+        log.info("Job {} timed out during generation", jobId);
+        try {
+            jobCommandService.failJob(jobId, "Generation exceeded its time limit of " + watch.getTimeout(),
+                    stillOwned);
+        } catch (Exception e) {
+            log.error("Failed to mark overdue job as failed: {}", jobId, e);
         }
     }
 
@@ -98,13 +319,28 @@ public class FileGenerationService {
         }
     }
 
-    private void simulateProcessingTime(String jobId) {
+    /**
+     * Whether this node still holds the lease it claimed the job with
+     */
+    private Predicate<JobEntity> leaseHeld(GenerationTask task) {
+        return job -> jobQueue.lockLease(task.getLeaseOwner(), task.getJobId(), task.getAttempt());
+    }
+
+    /**
+     * Pending, or in progress if an earlier attempt of the job had started
+     */
+    private static Predicate<JobEntity> unsettled() {
+        return job -> job.getStatus() == JobStatusEnum.PENDING || job.getStatus() == JobStatusEnum.IN_PROGRESS;
+    }
+
+    /**
+     * Stand-in for slow report queries; a cancel interrupts the sleep
+     */
+    private void simulateProcessingTime(ProgressSink progress) {
         try {
-            for (int i = 0; i < 5; i++) {
-                if (jobCommandService.isJobCancelled(jobId)) {
-                    break;
-                }
+            for (int i = 1; i <= 5; i++) {
                 Thread.sleep(500);
+                progress.report(i * 10);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
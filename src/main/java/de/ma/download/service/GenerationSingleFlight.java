@@ -0,0 +1,40 @@
+package de.ma.download.service;
+
+import de.ma.download.dto.GeneratedFile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks generations in flight on this node by result key, so identical
+ * requests arriving while one is running wait for it instead of generating
+ * the same report again.
+ */
+@Component
+public class GenerationSingleFlight {
+
+    private final Map<String, CompletableFuture<GeneratedFile>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Join the generation running for a key, or become its leader
+     * @return The pending result to follow, or null if the caller is now the
+     *         leader and must call {@link #settle} when done
+     */
+    public CompletableFuture<GeneratedFile> follow(String resultKey) {
+        return inFlight.putIfAbsent(resultKey, new CompletableFuture<>());
+    }
+
+    /**
+     * Publish the leader's result to all followers
+     * @param result The generated file, or null if the leader did not complete
+     */
+    public void settle(String resultKey, GeneratedFile result) {
+        // Remove first so followers that have to retry can elect a new leader
+        CompletableFuture<GeneratedFile> pending = inFlight.remove(resultKey);
+        if (pending != null) {
+            pending.complete(result);
+        }
+    }
+}
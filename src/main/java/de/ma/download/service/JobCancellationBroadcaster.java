@@ -0,0 +1,120 @@
+package de.ma.download.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Spreads job cancellations to all nodes through Postgres LISTEN/NOTIFY.
+ * Notifications are only delivered once the publishing transaction commits,
+ * so a rolled back cancel never reaches the workers.
+ * <p>
+ * The listener holds a connection of its own, opened outside the pool: it
+ * would otherwise take a pooled connection for good, and a pooled connection
+ * returned after a failure would go on listening for its next borrower.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JobCancellationBroadcaster implements SmartLifecycle {
+
+    private static final String CHANNEL = "job_cancellation";
+
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final JobCancellationRegistry cancellationRegistry;
+
+    @Value("${file.generation.cancellation.broadcast.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.generation.cancellation.broadcast.poll-timeout-ms:5000}")
+    private int pollTimeoutMs;
+
+    private volatile boolean running;
+    private Thread listener;
+    private DataSource listenerDataSource;
+
+    /**
+     * Announce a cancellation; joins the caller's transaction
+     */
+    public void publish(String jobId) {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, jobId);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Every getConnection opens a new physical connection, and closing it ends the LISTEN
+        listenerDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(SimpleDriverDataSource.class)
+                .build();
+        running = true;
+        listener = Thread.ofPlatform()
+                .name("job-cancellation-listener")
+                .daemon()
+                .start(this::listen);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = listenerDataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for job cancellations on channel {}", CHANNEL);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        cancellationRegistry.cancel(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Job cancellation listener lost its connection, reconnecting: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollTimeoutMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
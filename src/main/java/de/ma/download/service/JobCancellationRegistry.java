@@ -0,0 +1,69 @@
+package de.ma.download.service;
+
+import de.ma.download.generator.CancellationToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cancellation tokens of the jobs running on this node. A cancel for a job
+ * that is not running here leaves a short-lived tombstone, so a worker that
+ * picks the job up afterwards starts out cancelled.
+ */
+@Slf4j
+@Component
+public class JobCancellationRegistry {
+
+    private final Map<String, CancellationToken> tokens = new ConcurrentHashMap<>();
+    private final Map<String, Instant> tombstones = new ConcurrentHashMap<>();
+
+    @Value("${file.generation.cancellation.tombstone-ttl:PT10M}")
+    private Duration tombstoneTtl;
+
+    /**
+     * Create the token for a job and bind it to the calling worker thread
+     */
+    public CancellationToken register(String jobId) {
+        CancellationToken token = new CancellationToken();
+        token.bind();
+        tokens.put(jobId, token);
+
+        if (tombstones.remove(jobId) != null) {
+            token.cancel();
+        }
+        return token;
+    }
+
+    public void unregister(String jobId, CancellationToken token) {
+        tokens.remove(jobId, token);
+        token.unbind();
+    }
+
+    /**
+     * Trip the token of a job
+     * @return true if the job was running on this node
+     */
+    public boolean cancel(String jobId) {
+        CancellationToken token = tokens.get(jobId);
+        if (token == null) {
+            tombstones.put(jobId, Instant.now().plus(tombstoneTtl));
+            return false;
+        }
+
+        token.cancel();
+        log.info("Cancelled running job: {}", jobId);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${file.generation.cancellation.tombstone-purge-interval-ms:60000}")
+    public void purgeTombstones() {
+        Instant now = Instant.now();
+        tombstones.values().removeIf(expiry -> expiry.isBefore(now));
+    }
+}
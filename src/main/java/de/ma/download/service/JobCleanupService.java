@@ -3,6 +3,7 @@ package de.ma.download.service;
 import de.ma.download.entity.JobEntity;
 import de.ma.download.model.JobStatusEnum;
 import de.ma.download.repository.JobRepository;
+import de.ma.download.storage.ArtifactStore;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,11 +11,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -22,10 +26,15 @@ import java.util.List;
 public class JobCleanupService {
     private final JobRepository jobRepository;
     private final JobCommandService jobCommandService;
+    private final ArtifactStore artifactStore;
 
     @Value("${file.generation.job-expiry-hours:24}")
     private int jobExpiryHours;
 
+    // Artifacts used this recently may be about to be referenced by a job that is not yet committed
+    @Value("${file.storage.cleanup.grace-period:PT1H}")
+    private Duration artifactGracePeriod;
+
     @Scheduled(fixedDelayString = "${file.generation.cleanup-interval-minutes:30}")
     @CacheEvict(value = "jobStatus", allEntries = true)
     @Transactional
@@ -53,10 +62,64 @@ public class JobCleanupService {
 
         // Delete very old jobs (data retention policy)
         Instant retentionCutoff = Instant.now().minus(Duration.ofDays(30)); // 30-day retention
+        List<String> artifactKeys = jobRepository.findArtifactKeysOfJobsOlderThan(retentionCutoff);
         int deletedCount = jobRepository.deleteJobsOlderThan(retentionCutoff);
 
         if (deletedCount > 0) {
             log.info("Deleted {} jobs older than 30 days", deletedCount);
         }
+
+        if (!artifactKeys.isEmpty()) {
+            // Artifacts are content-addressed and may be shared, so only remove
+            // the ones no remaining job references once the deletion is committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteUnreferencedArtifacts(artifactKeys);
+                }
+            });
+        }
+    }
+
+    /**
+     * Delete artifacts no job references, such as the result of a job that was
+     * cancelled, timed out or taken over after its artifact was committed.
+     * Only artifacts unused for the grace period are considered, so one about
+     * to be referenced by a job that is still completing is left alone.
+     */
+    @Scheduled(fixedDelayString = "${file.storage.cleanup.orphan-sweep-interval-minutes:60}",
+            timeUnit = TimeUnit.MINUTES)
+    public void sweepOrphanedArtifacts() {
+        try {
+            List<String> candidates = artifactStore.findKeysModifiedBefore(Instant.now().minus(artifactGracePeriod));
+            if (!candidates.isEmpty()) {
+                deleteUnreferencedArtifacts(candidates);
+            }
+        } catch (Exception e) {
+            log.error("Failed to sweep orphaned artifacts", e);
+        }
+    }
+
+    private void deleteUnreferencedArtifacts(List<String> artifactKeys) {
+        Instant graceCutoff = Instant.now().minus(artifactGracePeriod);
+        int deletedArtifacts = 0;
+        for (String key : artifactKeys) {
+            if (jobRepository.existsByArtifactKey(key) || isRecentlyUsed(key, graceCutoff)) {
+                continue;
+            }
+            if (artifactStore.delete(key)) {
+                deletedArtifacts++;
+            }
+        }
+
+        if (deletedArtifacts > 0) {
+            log.info("Deleted {} unreferenced artifacts", deletedArtifacts);
+        }
+    }
+
+    private boolean isRecentlyUsed(String key, Instant graceCutoff) {
+        return artifactStore.lastModified(key)
+                .map(lastModified -> lastModified.isAfter(graceCutoff))
+                .orElse(false);
     }
 }
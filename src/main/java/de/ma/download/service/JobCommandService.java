@@ -8,6 +8,7 @@ import de.ma.download.event.store.JobEventStore;
 import de.ma.download.exception.JobNotFoundException;
 import de.ma.download.model.JobStatusEnum;
 import de.ma.download.repository.JobRepository;
+import de.ma.download.storage.StoredArtifact;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.OptimisticLockingFailureException;
@@ -16,6 +17,10 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 
 @Slf4j
 @Service
@@ -25,9 +30,76 @@ public class JobCommandService {
     private final JobEventStore eventStore;
     private final JobEventSourcingService eventSourcingService;
     private final WebSocketNotificationService notificationService;
+    private final JobQueue jobQueue;
 
     private static final int MAX_RETRY_ATTEMPTS = 3;
 
+    // IN_PROGRESS is startable so a job can be taken over from a node that died
+    private static final Set<JobStatusEnum> STARTABLE_STATUSES =
+            EnumSet.of(JobStatusEnum.PENDING, JobStatusEnum.IN_PROGRESS);
+
+    /**
+     * Move a job to IN_PROGRESS unless it was cancelled or settled. The status
+     * check and the change are a single conditional update, so a concurrent
+     * cancel either lands first and is seen here, or lands after and
+     * interrupts the running generation.
+     * @return The started job, or null if the job can no longer be started
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public JobEntity startJob(String jobId) {
+        JobStatusEnum oldStatus = jobRepository.findStatusByJobId(jobId)
+                .orElseThrow(() -> new JobNotFoundException(jobId));
+
+        if (jobRepository.updateStatusIfIn(jobId, JobStatusEnum.IN_PROGRESS, STARTABLE_STATUSES) == 0) {
+            return null;
+        }
+
+        JobEntity job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new JobNotFoundException(jobId));
+
+        eventStore.saveEvent(JobStatusChangedEvent.builder()
+                .jobId(jobId)
+                .oldStatus(oldStatus)
+                .newStatus(JobStatusEnum.IN_PROGRESS)
+                .userId(job.getUserId())
+                .timestamp(Instant.now())
+                .build());
+
+        notificationService.notifyJobStatusChange(job);
+        return job;
+    }
+
+    /**
+     * Cancel a job unless it already settled, and drop its queue entry. Like
+     * {@link #startJob(String)}, a single conditional update, so a job that
+     * completes or fails concurrently keeps its result.
+     * @return The cancelled job, or null if it had already settled
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public JobEntity cancelJob(String jobId) {
+        JobStatusEnum oldStatus = jobRepository.findStatusByJobId(jobId)
+                .orElseThrow(() -> new JobNotFoundException(jobId));
+
+        if (jobRepository.updateStatusIfIn(jobId, JobStatusEnum.CANCELLED, STARTABLE_STATUSES) == 0) {
+            return null;
+        }
+        jobQueue.discard(jobId);
+
+        JobEntity job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new JobNotFoundException(jobId));
+
+        eventStore.saveEvent(JobStatusChangedEvent.builder()
+                .jobId(jobId)
+                .oldStatus(oldStatus)
+                .newStatus(JobStatusEnum.CANCELLED)
+                .userId(job.getUserId())
+                .timestamp(Instant.now())
+                .build());
+
+        notificationService.notifyJobStatusChange(job);
+        return job;
+    }
+
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public JobEntity updateJobStatus(String jobId, JobStatusEnum newStatus) {
         for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS; attempt++) {
@@ -101,10 +173,26 @@ public class JobCommandService {
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public JobEntity completeJob(String jobId, GeneratedFile file) {
+        return completeJob(jobId, file, job -> true);
+    }
+
+    /**
+     * Complete a job if the precondition holds for its current state. The
+     * precondition is checked in the completing transaction, so it may lock
+     * what it checks until the completion is committed.
+     * @return The completed job, or null if the precondition did not hold
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public JobEntity completeJob(String jobId, GeneratedFile file, Predicate<JobEntity> precondition) {
+        StoredArtifact artifact = file.getArtifact();
         for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS; attempt++) {
             try {
                 JobEntity job = jobRepository.findById(jobId)
                         .orElseThrow(() -> new JobNotFoundException(jobId));
+                if (!precondition.test(job)) {
+                    log.info("Not completing job {} ({}), its precondition no longer holds", jobId, job.getStatus());
+                    return null;
+                }
 
                 Instant now = Instant.now();
 
@@ -112,8 +200,11 @@ public class JobCommandService {
                         .jobId(jobId)
                         .fileName(file.getFileName())
                         .contentType(file.getContentType())
-                        .fileSize((long) file.getFileData().length)
-                        .fileData(file.getFileData())
+                        .fileSize(artifact.getContentLength())
+                        .artifactKey(artifact.getKey())
+                        .contentEncoding(artifact.getEncoding())
+                        .contentHash(artifact.getContentHash())
+                        .storedSize(artifact.getSize())
                         .userId(job.getUserId())
                         .timestamp(now)
                         .build();
@@ -121,10 +212,14 @@ public class JobCommandService {
                 eventStore.saveEvent(event);
 
                 job.setStatus(JobStatusEnum.COMPLETED);
+                job.setProgress(100);
                 job.setFileName(file.getFileName());
                 job.setContentType(file.getContentType());
-                job.setFileSize((long) file.getFileData().length);
-                job.setFileData(file.getFileData());
+                job.setFileSize(artifact.getContentLength());
+                job.setArtifactKey(artifact.getKey());
+                job.setContentEncoding(artifact.getEncoding());
+                job.setContentHash(artifact.getContentHash());
+                job.setStoredSize(artifact.getSize());
                 job.setCompletedAt(now);
 
                 try {
@@ -179,10 +274,24 @@ public class JobCommandService {
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public JobEntity failJob(String jobId, String reason) {
+        return failJob(jobId, reason, job -> true);
+    }
+
+    /**
+     * Fail a job if the precondition holds for its current state
+     * @return The failed job, or null if the precondition did not hold
+     * @see #completeJob(String, GeneratedFile, Predicate)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public JobEntity failJob(String jobId, String reason, Predicate<JobEntity> precondition) {
         for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS; attempt++) {
             try {
                 JobEntity job = jobRepository.findById(jobId)
                         .orElseThrow(() -> new JobNotFoundException(jobId));
+                if (!precondition.test(job)) {
+                    log.info("Not failing job {} ({}), its precondition no longer holds", jobId, job.getStatus());
+                    return null;
+                }
 
                 JobFailedEvent event = JobFailedEvent.builder()
                         .jobId(jobId)
@@ -249,12 +358,12 @@ public class JobCommandService {
     @Transactional(readOnly = true)
     public boolean isJobCancelled(String jobId) {
         try {
-            JobEntity job = jobRepository.findById(jobId).orElse(null);
-
-            if (job == null) {
-                job = eventSourcingService.reconstructJobState(jobId);
+            Optional<JobStatusEnum> status = jobRepository.findStatusByJobId(jobId);
+            if (status.isPresent()) {
+                return status.get() == JobStatusEnum.CANCELLED;
             }
 
+            JobEntity job = eventSourcingService.reconstructJobState(jobId);
             return job == null || job.getStatus() == JobStatusEnum.CANCELLED;
         } catch (Exception e) {
             log.error("Error checking if job is cancelled: {}", jobId, e);
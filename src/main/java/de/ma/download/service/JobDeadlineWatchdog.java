@@ -0,0 +1,210 @@
+package de.ma.download.service;
+
+import de.ma.download.generator.CancellationToken;
+import de.ma.download.model.FileType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enforces the time limit of running generations. Deadlines sit in a hashed
+ * timing wheel, so watching and releasing a job is O(1) however many jobs
+ * run; a single thread advances the wheel once per tick. An overdue job has
+ * its cancellation token expired, which interrupts the worker. The worker
+ * then fails the job itself, so the failure is recorded in order with
+ * anything else the worker settles for the job.
+ */
+@Slf4j
+@Component
+public class JobDeadlineWatchdog implements SmartLifecycle {
+
+    private static final int WAITING = 0;
+    private static final int RELEASED = 1;
+    private static final int EXPIRED = 2;
+
+    private final Map<FileType, Duration> timeouts = new EnumMap<>(FileType.class);
+
+    // Handed over by workers; only the watchdog thread touches the wheel
+    private final Queue<Watch> pending = new ConcurrentLinkedQueue<>();
+    private ArrayDeque<Watch>[] wheel;
+    private long tickNanos;
+    private long startNanos;
+    private long tick;
+
+    @Value("${file.generation.watchdog.tick:PT1S}")
+    private Duration tickDuration;
+
+    @Value("${file.generation.watchdog.wheel-size:512}")
+    private int wheelSize;
+
+    private volatile boolean running;
+    private Thread ticker;
+
+    public JobDeadlineWatchdog(Environment environment) {
+        Duration defaultTimeout = environment.getProperty(
+                "file.generation.timeout.default", Duration.class, Duration.ofMinutes(10));
+        for (FileType fileType : FileType.values()) {
+            timeouts.put(fileType, environment.getProperty(
+                    "file.generation.timeout." + fileType.name(), Duration.class, defaultTimeout));
+        }
+    }
+
+    /**
+     * Time a generation of the given type may take
+     */
+    public Duration getTimeout(FileType fileType) {
+        return timeouts.get(fileType);
+    }
+
+    /**
+     * Expire the token if the job is still running once the timeout has passed
+     * @return Handle to release the job once it has finished
+     */
+    public Watch watch(String jobId, CancellationToken token, Duration timeout) {
+        Watch watch = new Watch(jobId, token, timeout,
+                Instant.now().plus(timeout), System.nanoTime() + timeout.toNanos());
+        pending.add(watch);
+        return watch;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void start() {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        wheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        tickNanos = tickDuration.toNanos();
+        startNanos = System.nanoTime();
+        tick = 0;
+
+        running = true;
+        ticker = Thread.ofPlatform()
+                .name("job-deadline-watchdog")
+                .daemon()
+                .start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                long sleep = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            tick++;
+            try {
+                schedulePending();
+                expireDue(wheel[(int) (tick & (wheel.length - 1))]);
+            } catch (Exception e) {
+                log.error("Job deadline watchdog tick failed", e);
+            }
+        }
+    }
+
+    private void schedulePending() {
+        Watch watch;
+        while ((watch = pending.poll()) != null) {
+            if (watch.state.get() != WAITING) {
+                continue;
+            }
+            // Never schedule into the past; an overdue job expires on this tick
+            long due = Math.max(tick, Math.ceilDiv(watch.deadlineNanos - startNanos, tickNanos));
+            watch.rounds = (due - tick) / wheel.length;
+            wheel[(int) (due & (wheel.length - 1))].add(watch);
+        }
+    }
+
+    private void expireDue(ArrayDeque<Watch> bucket) {
+        Iterator<Watch> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Watch watch = iterator.next();
+            if (watch.state.get() != WAITING) {
+                iterator.remove();
+            } else if (watch.rounds > 0) {
+                watch.rounds--;
+            } else {
+                iterator.remove();
+                if (watch.state.compareAndSet(WAITING, EXPIRED)) {
+                    expire(watch);
+                }
+            }
+        }
+    }
+
+    private void expire(Watch watch) {
+        log.warn("Job {} exceeded its time limit of {}, interrupting it", watch.jobId, watch.timeout);
+        watch.token.expire();
+    }
+
+    /**
+     * A job watched for its deadline
+     */
+    public static class Watch {
+        private final String jobId;
+        private final CancellationToken token;
+        private final Duration timeout;
+        private final Instant deadline;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        // Full turns of the wheel left before the deadline; watchdog thread only
+        private long rounds;
+
+        private Watch(String jobId, CancellationToken token, Duration timeout, Instant deadline,
+                      long deadlineNanos) {
+            this.jobId = jobId;
+            this.token = token;
+            this.timeout = timeout;
+            this.deadline = deadline;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public Instant getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Stop watching the job; safe to call more than once
+         * @return false if the deadline already expired the job
+         */
+        public boolean release() {
+            return state.compareAndSet(WAITING, RELEASED) || state.get() == RELEASED;
+        }
+    }
+}
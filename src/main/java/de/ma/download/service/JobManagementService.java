@@ -1,21 +1,27 @@
 package de.ma.download.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.ma.download.dto.JobDTO;
 import de.ma.download.dto.PagedJobResponse;
 import de.ma.download.dto.ReportRequest;
+import de.ma.download.dto.websocket.ServiceNotification;
 import de.ma.download.entity.JobEntity;
+import de.ma.download.entity.JobQueueEntity;
 import de.ma.download.event.FileGenerationEvent;
+import de.ma.download.event.JobBatchEnqueuedEvent;
 import de.ma.download.event.model.JobCreatedEvent;
+import de.ma.download.event.model.JobEvent;
 import de.ma.download.event.store.JobEventStore;
 import de.ma.download.exception.JobAlreadyExistsException;
 import de.ma.download.exception.JobNotFoundException;
 import de.ma.download.exception.ResourceAccessDeniedException;
-import de.ma.download.exception.ServiceOverloadedException;
 import de.ma.download.generator.GeneratorRegistry;
 import de.ma.download.mapper.JobMapper;
 import de.ma.download.model.FileType;
 import de.ma.download.model.JobStatusEnum;
 import de.ma.download.repository.JobRepository;
+import de.ma.download.repository.JobSummaryView;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,12 +30,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -40,15 +52,20 @@ public class JobManagementService {
     private final JobRepository jobRepository;
     private final JobMapper jobMapper;
     private final UserContextService userContextService;
-    private final JobCleanupService jobCleanupService;
     private final WebSocketNotificationService notificationService;
     private final ApplicationEventPublisher eventPublisher;
     private final JobEventStore eventStore;
     private final JobCommandService jobCommandService;
     private final GeneratorRegistry generatorRegistry;
+    private final JobCancellationRegistry cancellationRegistry;
+    private final JobCancellationBroadcaster cancellationBroadcaster;
+    private final ResultCacheService resultCacheService;
+    private final JobQueue jobQueue;
+    private final JobQueueWorker jobQueueWorker;
+    private final ObjectMapper objectMapper;
 
-    @Value("${file.generation.max-jobs:1000}")
-    private int maxJobs;
+    @Value("${file.generation.subscriptions.system-user:system}")
+    private String systemUserId;
 
     /**
      * Initiate a job with a specific report request
@@ -57,14 +74,8 @@ public class JobManagementService {
     public String initiateJob(ReportRequest request, Principal principal) {
         FileType fileType = request.getFileType();
 
-        if (jobRepository.count() >= maxJobs) {
-            log.warn("Max job capacity reached ({}). Triggering cleanup.", maxJobs);
-            jobCleanupService.cleanupExpiredJobs();
-
-            if (jobRepository.count() >= maxJobs) {
-                throw new ServiceOverloadedException("System is currently processing too many jobs. Please try again later.");
-            }
-        }
+        // Admission works on the backlog count cached by the queue poller
+        jobQueueWorker.checkBacklog();
 
         String userId = principal != null ?
                 userContextService.getUserIdFromPrincipal(principal) :
@@ -84,11 +95,13 @@ public class JobManagementService {
 
         String jobId = UUID.randomUUID().toString();
         Instant now = Instant.now();
+        String resultKey = resultCacheService.resultKey(request, userId);
 
         JobCreatedEvent event = JobCreatedEvent.builder()
                 .jobId(jobId)
                 .fileType(fileType)
                 .userId(userId)
+                .resultKey(resultKey)
                 .timestamp(now)
                 .build();
 
@@ -100,18 +113,164 @@ public class JobManagementService {
         job.setStatus(JobStatusEnum.PENDING);
         job.setCreatedAt(now);
         job.setUserId(userId);
+        job.setResultKey(resultKey);
 
         jobRepository.save(job);
 
+        // Queued in the same transaction, so a committed job is never lost
+        jobQueue.enqueue(List.of(queueEntry(job, request)));
+
         log.info("Job initiated: {}, Type: {}, User: {}", jobId, fileType, userId);
 
         notificationService.notifyJobStatusChange(job);
 
-        eventPublisher.publishEvent(new FileGenerationEvent(this, jobId, fileType, request));
+        eventPublisher.publishEvent(new FileGenerationEvent(this, jobId, userId, fileType, request, resultKey));
 
         return jobId;
     }
 
+    /**
+     * Initiate several jobs in one transaction. Jobs, their created events and
+     * queue entries are written in JDBC batches, and the user gets a single
+     * notification for the whole batch.
+     * @return Job IDs in the order of the requests
+     * @throws JobAlreadyExistsException if a request repeats another one of the
+     *         batch or one of the user's jobs in progress
+     */
+    @Transactional
+    public List<String> initiateJobs(List<ReportRequest> requests, Principal principal) {
+        jobQueueWorker.checkBacklog(requests.size());
+
+        String userId = principal != null ?
+                userContextService.getUserIdFromPrincipal(principal) :
+                userContextService.getCurrentUserId();
+
+        // Identical requests are rejected; different parameters of one type are what batches are for
+        Set<String> resultKeys = new HashSet<>(jobRepository.findResultKeysByUserIdAndStatusIn(
+                userId, Arrays.asList(JobStatusEnum.PENDING, JobStatusEnum.IN_PROGRESS)));
+
+        Instant now = Instant.now();
+        List<JobEntity> jobs = new ArrayList<>(requests.size());
+        List<JobEvent> events = new ArrayList<>(requests.size());
+        List<JobQueueEntity> entries = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            ReportRequest request = requests.get(i);
+            String resultKey = resultCacheService.resultKey(request, userId);
+            if (resultKey != null && !resultKeys.add(resultKey)) {
+                throw new JobAlreadyExistsException("Request " + i + " duplicates a " + request.getFileType() +
+                        " generation that is already in progress or earlier in the batch");
+            }
+
+            JobEntity job = newJob(userId, request.getFileType(), resultKey, now);
+            jobs.add(job);
+            events.add(createdEvent(job));
+            entries.add(queueEntry(job, request));
+        }
+
+        eventStore.saveEvents(events);
+        jobRepository.saveAll(jobs);
+        jobQueue.enqueue(entries);
+
+        List<String> jobIds = jobs.stream().map(JobEntity::getJobId).toList();
+        log.info("Batch of {} jobs initiated for user: {}", jobIds.size(), userId);
+
+        notificationService.sendServiceNotification(userId, ServiceNotification.NotificationType.INFO,
+                jobIds.size() + " reports have been queued for generation.");
+
+        eventPublisher.publishEvent(new JobBatchEnqueuedEvent(this, userId, jobIds));
+
+        return jobIds;
+    }
+
+    /**
+     * Initiate the jobs of a scheduled report run. With several subscribers,
+     * one job owned by the system user generates the report and each
+     * subscriber gets a job that receives its artifact once it completes.
+     * Only requests whose results are shared between users may be passed
+     * with more than one subscriber. Runs in a transaction of its own, so a
+     * run that cannot be started does not roll back the runs started with it.
+     * @return Job IDs of the subscribers, in the order of the user IDs
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<String> initiateScheduledJobs(ReportRequest request, String resultKey, List<String> userIds) {
+        Instant now = Instant.now();
+        List<JobEntity> jobs = new ArrayList<>(userIds.size() + 1);
+
+        JobEntity source = userIds.size() > 1 ? newJob(systemUserId, request.getFileType(), resultKey, now) : null;
+        if (source != null) {
+            jobs.add(source);
+        }
+        for (String userId : userIds) {
+            JobEntity job = newJob(userId, request.getFileType(), resultKey, now);
+            job.setSourceJobId(source != null ? source.getJobId() : null);
+            jobs.add(job);
+        }
+
+        // Only the generating job is queued; the others wait for its artifact
+        JobEntity generating = source != null ? source : jobs.getFirst();
+
+        eventStore.saveEvents(jobs.stream().map(this::createdEvent).toList());
+        jobRepository.saveAll(jobs);
+        jobQueue.enqueue(List.of(queueEntry(generating, request)));
+
+        log.info("Scheduled {} initiated for {} subscribers, generating job: {}",
+                request.getFileType(), userIds.size(), generating.getJobId());
+
+        for (String userId : userIds) {
+            notificationService.sendServiceNotification(userId, ServiceNotification.NotificationType.INFO,
+                    "Your scheduled " + request.getFileType() + " is being generated.");
+        }
+
+        eventPublisher.publishEvent(new JobBatchEnqueuedEvent(this, generating.getUserId(),
+                List.of(generating.getJobId())));
+
+        return jobs.stream()
+                .filter(job -> job != source)
+                .map(JobEntity::getJobId)
+                .toList();
+    }
+
+    private JobEntity newJob(String userId, FileType fileType, String resultKey, Instant now) {
+        JobEntity job = new JobEntity();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setFileType(fileType);
+        job.setStatus(JobStatusEnum.PENDING);
+        job.setCreatedAt(now);
+        job.setUserId(userId);
+        job.setResultKey(resultKey);
+        return job;
+    }
+
+    private JobEvent createdEvent(JobEntity job) {
+        return JobCreatedEvent.builder()
+                .jobId(job.getJobId())
+                .fileType(job.getFileType())
+                .userId(job.getUserId())
+                .resultKey(job.getResultKey())
+                .timestamp(job.getCreatedAt())
+                .build();
+    }
+
+    private JobQueueEntity queueEntry(JobEntity job, ReportRequest request) {
+        return JobQueueEntity.builder()
+                .jobId(job.getJobId())
+                .userId(job.getUserId())
+                .fileType(job.getFileType())
+                .parameters(serializeRequest(request))
+                .resultKey(job.getResultKey())
+                .enqueuedAt(job.getCreatedAt())
+                .build();
+    }
+
+    private String serializeRequest(ReportRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Report request cannot be serialized", e);
+        }
+    }
+
     /**
      * Initiate a job without a principal
      */
@@ -132,7 +291,13 @@ public class JobManagementService {
 
         if (job.getStatus() == JobStatusEnum.PENDING || job.getStatus() == JobStatusEnum.IN_PROGRESS) {
             try {
-                jobCommandService.updateJobStatus(jobId, JobStatusEnum.CANCELLED);
+                // The status read above may be stale; only a job still unsettled is cancelled
+                if (jobCommandService.cancelJob(jobId) == null) {
+                    log.info("Job {} settled before it could be cancelled", jobId);
+                    return false;
+                }
+                cancellationRegistry.cancel(jobId);
+                cancellationBroadcaster.publish(jobId);
                 log.info("Job cancelled: {}", jobId);
                 return true;
             } catch (Exception e) {
@@ -185,7 +350,7 @@ public class JobManagementService {
                 userContextService.getUserIdFromPrincipal(principal) :
                 userContextService.getCurrentUserId();
 
-        Page<JobEntity> jobsPage = jobRepository.findByUserId(
+        Page<JobSummaryView> jobsPage = jobRepository.findSummariesByUserId(
                 userId,
                 PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"))
         );
@@ -201,9 +366,25 @@ public class JobManagementService {
                 .totalPages(jobsPage.getTotalPages())
                 .currentPage(page)
                 .pageSize(size)
+                .etag(computeListingEtag(jobsPage, page, size))
                 .build();
     }
 
+    /**
+     * Weak ETag for a page of jobs. Every job update bumps the entity version
+     * except progress checkpoints, so the page is unchanged as long as its ids,
+     * versions, progress and total match.
+     */
+    private String computeListingEtag(Page<JobSummaryView> jobsPage, int page, int size) {
+        StringBuilder fingerprint = new StringBuilder()
+                .append(page).append(':').append(size).append(':').append(jobsPage.getTotalElements());
+        for (JobSummaryView job : jobsPage.getContent()) {
+            fingerprint.append(';').append(job.getJobId()).append(':').append(job.getVersion())
+                    .append(':').append(job.getProgress());
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(fingerprint.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
     @Transactional(readOnly = true)
     public PagedJobResponse getRecentJobs(int page, int size) {
         return getRecentJobs(page, size, null);
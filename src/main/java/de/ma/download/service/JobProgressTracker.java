@@ -0,0 +1,96 @@
+package de.ma.download.service;
+
+import de.ma.download.entity.JobEntity;
+import de.ma.download.generator.ProgressSink;
+import de.ma.download.repository.JobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects progress of running jobs in memory. Generators only update a
+ * field; a scheduled flush pushes the latest value of each changed job over
+ * WebSocket, so clients see at most one update per job and flush interval.
+ * The database is only written when progress crosses a checkpoint.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JobProgressTracker {
+
+    private final JobRepository jobRepository;
+    private final WebSocketNotificationService notificationService;
+
+    private final Map<String, JobProgress> running = new ConcurrentHashMap<>();
+
+    @Value("${file.generation.progress.checkpoint-step:25}")
+    private int checkpointStep;
+
+    /**
+     * Start tracking a job
+     * @return The sink the job's generator reports to
+     */
+    public ProgressSink start(JobEntity job) {
+        JobProgress progress = new JobProgress(job);
+        running.put(job.getJobId(), progress);
+        return progress::report;
+    }
+
+    /**
+     * Stop tracking a job; pending updates are dropped as the final status
+     * update supersedes them. Call before the job is settled.
+     */
+    public void stop(String jobId) {
+        JobProgress progress = running.remove(jobId);
+        if (progress != null) {
+            progress.stopped = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${file.generation.progress.push-interval-ms:250}")
+    public void flush() {
+        for (JobProgress progress : running.values()) {
+            int percent = progress.percent;
+            if (progress.stopped || percent == progress.pushedPercent) {
+                continue;
+            }
+            progress.pushedPercent = percent;
+
+            notificationService.notifyJobProgress(progress.job, percent);
+
+            if (percent / checkpointStep > progress.persistedPercent / checkpointStep) {
+                progress.persistedPercent = percent;
+                try {
+                    jobRepository.updateProgress(progress.job.getJobId(), percent);
+                } catch (Exception e) {
+                    log.warn("Failed to persist progress checkpoint for job {}: {}",
+                            progress.job.getJobId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static class JobProgress {
+        private final JobEntity job;
+        private volatile int percent;
+        private volatile boolean stopped;
+        private int pushedPercent;
+        private int persistedPercent;
+
+        JobProgress(JobEntity job) {
+            this.job = job;
+        }
+
+        void report(int value) {
+            int clamped = Math.max(0, Math.min(100, value));
+            if (clamped > percent) {
+                percent = clamped;
+            }
+        }
+    }
+}
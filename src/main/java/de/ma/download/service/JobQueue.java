@@ -0,0 +1,158 @@
+package de.ma.download.service;
+
+import de.ma.download.entity.JobQueueEntity;
+import de.ma.download.model.FileType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lease operations on the {@code job_queue} table. Claims use
+ * {@code FOR UPDATE SKIP LOCKED}, so concurrent workers on any number of
+ * nodes each get a disjoint batch without waiting on each other. Lease
+ * times are taken from the database clock.
+ */
+@Component
+@RequiredArgsConstructor
+public class JobQueue {
+
+    private static final String CLAIM_SQL = """
+            UPDATE job_queue q
+               SET lease_owner = ?,
+                   lease_expires_at = now() + make_interval(secs => ?),
+                   attempts = q.attempts + 1
+             WHERE q.job_id IN (
+                   SELECT job_id FROM job_queue
+                    WHERE (lease_expires_at IS NULL OR lease_expires_at < now())
+                      AND NOT (job_id = ANY (?))
+                    ORDER BY enqueued_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED)
+            RETURNING q.job_id, q.user_id, q.file_type, q.parameters, q.result_key,
+                      q.enqueued_at, q.attempts, q.lease_owner, q.lease_expires_at
+            """;
+
+    private static final RowMapper<JobQueueEntity> ROW_MAPPER = (rs, rowNum) -> JobQueueEntity.builder()
+            .jobId(rs.getString("job_id"))
+            .userId(rs.getString("user_id"))
+            .fileType(FileType.valueOf(rs.getString("file_type")))
+            .parameters(rs.getString("parameters"))
+            .resultKey(rs.getString("result_key"))
+            .enqueuedAt(toInstant(rs.getTimestamp("enqueued_at")))
+            .attempts(rs.getInt("attempts"))
+            .leaseOwner(rs.getString("lease_owner"))
+            .leaseExpiresAt(toInstant(rs.getTimestamp("lease_expires_at")))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Add jobs to the queue in one JDBC batch, in the caller's transaction
+     */
+    public void enqueue(List<JobQueueEntity> entries) {
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO job_queue (job_id, user_id, file_type, parameters, result_key, enqueued_at, attempts)
+                        VALUES (?, ?, ?, ?, ?, ?, 0)
+                        """,
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setString(1, entry.getJobId());
+                    ps.setString(2, entry.getUserId());
+                    ps.setString(3, entry.getFileType().name());
+                    ps.setString(4, entry.getParameters());
+                    ps.setString(5, entry.getResultKey());
+                    ps.setTimestamp(6, Timestamp.from(entry.getEnqueuedAt()));
+                });
+    }
+
+    /**
+     * Lease up to {@code limit} available jobs, oldest first
+     * @param held Jobs the owner still processes; never claimed again even if their lease lapsed
+     */
+    public List<JobQueueEntity> claim(String owner, int limit, Duration leaseTtl, Collection<String> held) {
+        return jdbcTemplate.query(CLAIM_SQL, ps -> {
+            ps.setString(1, owner);
+            ps.setLong(2, leaseTtl.toSeconds());
+            ps.setArray(3, ps.getConnection().createArrayOf("varchar", held.toArray()));
+            ps.setInt(4, limit);
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * Extend the leases the owner still holds
+     * @return Number of leases extended
+     */
+    public int renew(String owner, Collection<String> jobIds, Duration leaseTtl) {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("""
+                        UPDATE job_queue
+                           SET lease_expires_at = now() + make_interval(secs => ?)
+                         WHERE lease_owner = ? AND job_id = ANY (?)
+                        """,
+                ps -> {
+                    ps.setLong(1, leaseTtl.toSeconds());
+                    ps.setString(2, owner);
+                    ps.setArray(3, ps.getConnection().createArrayOf("varchar", jobIds.toArray()));
+                });
+    }
+
+    /**
+     * Return a leased job to the queue, e.g. when this node cannot take it
+     */
+    public void release(String owner, String jobId) {
+        jdbcTemplate.update("""
+                UPDATE job_queue
+                   SET lease_owner = NULL, lease_expires_at = NULL, attempts = GREATEST(attempts - 1, 0)
+                 WHERE job_id = ? AND lease_owner = ?
+                """, jobId, owner);
+    }
+
+    /**
+     * Check that the owner still holds the lease it claimed the job with, and
+     * lock the entry until the caller's transaction ends, so no other node
+     * can claim the job while its result is recorded
+     */
+    public boolean lockLease(String owner, String jobId, int attempt) {
+        return !jdbcTemplate.queryForList("""
+                SELECT job_id FROM job_queue
+                 WHERE job_id = ? AND lease_owner = ? AND attempts = ?
+                   FOR UPDATE
+                """, String.class, jobId, owner, attempt).isEmpty();
+    }
+
+    /**
+     * Drop the entry of a job that will not run anymore, whoever holds it
+     */
+    public void discard(String jobId) {
+        jdbcTemplate.update("DELETE FROM job_queue WHERE job_id = ?", jobId);
+    }
+
+    /**
+     * Remove a settled job from the queue, unless another owner took it over
+     */
+    public void remove(String owner, String jobId) {
+        jdbcTemplate.update("DELETE FROM job_queue WHERE job_id = ? AND lease_owner = ?", jobId, owner);
+    }
+
+    /**
+     * Number of jobs waiting to be claimed
+     */
+    public long countAvailable() {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM job_queue WHERE lease_expires_at IS NULL OR lease_expires_at < now()",
+                Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+}
@@ -0,0 +1,308 @@
+package de.ma.download.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ma.download.dto.GenerationTask;
+import de.ma.download.dto.ReportRequest;
+import de.ma.download.entity.JobEntity;
+import de.ma.download.entity.JobQueueEntity;
+import de.ma.download.event.FileGenerationEvent;
+import de.ma.download.event.JobBatchEnqueuedEvent;
+import de.ma.download.exception.ServiceOverloadedException;
+import de.ma.download.model.JobStatusEnum;
+import de.ma.download.repository.JobRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves jobs from the durable queue into the local scheduler. Jobs are
+ * leased for this node and the leases are renewed while the jobs run; if
+ * the node dies, the leases expire and another node picks the jobs up.
+ * <p>
+ * A job's result is only recorded while this node still holds the lease
+ * it claimed the job with, so a node that lost its lease, e.g. after a long
+ * pause, cannot overwrite the result of the node that took the job over.
+ * <p>
+ * In cluster mode each node also advertises its capacity, and claims at
+ * most its share of the backlog in proportion to its free slots, so idle
+ * nodes take over work that would otherwise wait on busy ones.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JobQueueWorker {
+
+    private final JobQueue jobQueue;
+    private final JobRepository jobRepository;
+    private final JobCommandService jobCommandService;
+    private final FileGenerationService fileGenerationService;
+    private final FairJobScheduler fairJobScheduler;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final ObjectMapper objectMapper;
+    @Qualifier("jobQueueScheduler")
+    private final TaskScheduler taskScheduler;
+    private final WorkerNodeRegistry nodeRegistry;
+    private final SharedJobFanOut fanOut;
+
+    private final Set<String> heldJobs = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock pollLock = new ReentrantLock();
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+
+    // Cached by the poller so admission does not query the queue on every request
+    private volatile long backlog;
+
+    @Value("${file.generation.node-id:${random.uuid}}")
+    private String nodeId;
+
+    @Value("${file.generation.queue.lease-ttl:PT60S}")
+    private Duration leaseTtl;
+
+    @Value("${file.generation.queue.batch-size:10}")
+    private int batchSize;
+
+    @Value("${file.generation.queue.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${file.generation.queue.max-backlog:1000}")
+    private long maxBacklog;
+
+    @Value("${file.generation.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    @Value("${file.generation.cluster.node-ttl:PT30S}")
+    private Duration nodeTtl;
+
+    /**
+     * Fail fast if the queue is full, before a job is persisted
+     * @throws ServiceOverloadedException if no more jobs can be queued
+     */
+    public void checkBacklog() {
+        checkBacklog(1);
+    }
+
+    /**
+     * Fail fast if the queue cannot take the given number of jobs
+     * @throws ServiceOverloadedException if the jobs would exceed the backlog limit
+     */
+    public void checkBacklog(int jobs) {
+        long waiting = backlog;
+        if (waiting + jobs > maxBacklog) {
+            // Roughly the time until the backlog ahead of a new job has drained
+            int limit = concurrencyLimit.getLimit();
+            Duration retryAfter = concurrencyLimit.getAverageLatency().multipliedBy(waiting / limit + 1);
+            throw new ServiceOverloadedException(
+                    "System is currently processing too many jobs. Please try again later.", retryAfter);
+        }
+    }
+
+    /**
+     * Poll right after a job was committed instead of waiting for the next tick
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleFileGenerationEvent(FileGenerationEvent event) {
+        log.debug("Job {} enqueued, requesting poll", event.getJobId());
+        requestPoll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void handleJobBatchEnqueuedEvent(JobBatchEnqueuedEvent event) {
+        log.debug("{} jobs enqueued for user {}, requesting poll", event.getJobIds().size(), event.getUserId());
+        requestPoll();
+    }
+
+    @Scheduled(fixedDelayString = "${file.generation.queue.poll-interval-ms:1000}", scheduler = "jobQueueScheduler")
+    public void poll() {
+        if (!pollLock.tryLock()) {
+            // The running poll picks this request up
+            pollRequested.set(true);
+            return;
+        }
+        try {
+            do {
+                pollRequested.set(false);
+                claimAvailable();
+            } while (pollRequested.get());
+        } catch (Exception e) {
+            log.error("Failed to poll job queue", e);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    /**
+     * Extend the leases of jobs this node still holds
+     */
+    @Scheduled(fixedDelayString = "${file.generation.queue.heartbeat-interval-ms:20000}",
+            scheduler = "jobQueueScheduler")
+    public void heartbeat() {
+        try {
+            int renewed = jobQueue.renew(nodeId, List.copyOf(heldJobs), leaseTtl);
+            log.debug("Renewed {} job leases for node {}", renewed, nodeId);
+        } catch (Exception e) {
+            log.error("Failed to renew job leases for node {}", nodeId, e);
+        }
+
+        if (clusterEnabled) {
+            try {
+                List<String> dead = nodeRegistry.reapDeadNodes(nodeTtl);
+                if (!dead.isEmpty()) {
+                    log.warn("Removed dead worker nodes {}, their jobs are claimed once their leases expire", dead);
+                }
+            } catch (Exception e) {
+                log.error("Failed to reap dead worker nodes", e);
+            }
+        }
+    }
+
+    /**
+     * Leave the cluster; leases of jobs still running here expire on their own
+     */
+    @PreDestroy
+    public void deregister() {
+        if (clusterEnabled) {
+            try {
+                nodeRegistry.remove(nodeId);
+            } catch (Exception e) {
+                log.warn("Failed to deregister worker node {}", nodeId, e);
+            }
+        }
+    }
+
+    private void requestPoll() {
+        taskScheduler.schedule(this::poll, Instant.now());
+    }
+
+    private void claimAvailable() {
+        int capacity = concurrencyLimit.getLimit();
+        int running = fairJobScheduler.getRunning();
+        int queued = fairJobScheduler.getQueued();
+        int free = capacity - running - queued;
+        int limit = Math.min(batchSize, free);
+
+        if (clusterEnabled) {
+            nodeRegistry.advertise(nodeId, capacity, running, queued);
+            if (limit > 0) {
+                limit = Math.min(limit, fairShare(free));
+            }
+        }
+
+        if (limit > 0) {
+            List<JobQueueEntity> claimed = jobQueue.claim(nodeId, limit, leaseTtl, List.copyOf(heldJobs));
+            if (!claimed.isEmpty()) {
+                log.debug("Node {} claimed {} jobs", nodeId, claimed.size());
+            }
+            for (JobQueueEntity entry : claimed) {
+                dispatch(entry);
+            }
+        }
+        backlog = jobQueue.countAvailable();
+    }
+
+    /**
+     * This node's share of the backlog, proportional to its free slots.
+     * Always at least one, so a stale backlog count cannot stall claiming.
+     */
+    private int fairShare(int free) {
+        int totalFree = Math.max(nodeRegistry.totalFreeSlots(nodeTtl), free);
+        return (int) Math.max(1, Math.ceilDiv(backlog * free, totalFree));
+    }
+
+    private void dispatch(JobQueueEntity entry) {
+        String jobId = entry.getJobId();
+        if (!heldJobs.add(jobId)) {
+            // Settled or still running here; the claim only extended its lease
+            log.warn("Job {} was claimed again while held by node {}", jobId, nodeId);
+            return;
+        }
+        try {
+            JobStatusEnum status = jobRepository.findById(jobId).map(JobEntity::getStatus).orElse(null);
+            if (status == null || isFinal(status)) {
+                // Settled before the previous owner could remove it
+                log.info("Dropping queue entry of settled job {} ({})", jobId, status);
+                settle(jobId);
+                return;
+            }
+
+            if (entry.getAttempts() > maxAttempts) {
+                log.warn("Job {} exceeded {} attempts, failing it", jobId, maxAttempts);
+                jobCommandService.failJob(jobId, "Generation did not finish after " + maxAttempts + " attempts");
+                settle(jobId);
+                return;
+            }
+
+            GenerationTask task = GenerationTask.builder()
+                    .jobId(jobId)
+                    .userId(entry.getUserId())
+                    .fileType(entry.getFileType())
+                    .request(entry.getParameters() != null ?
+                            objectMapper.readValue(entry.getParameters(), ReportRequest.class) : null)
+                    .resultKey(entry.getResultKey())
+                    .leaseOwner(nodeId)
+                    .attempt(entry.getAttempts())
+                    .build();
+
+            fileGenerationService.process(task, () -> {
+                settle(jobId);
+                requestPoll();
+            }, () -> release(jobId));
+        } catch (ServiceOverloadedException e) {
+            log.info("Scheduler full, returning job {} to the queue", jobId);
+            release(jobId);
+        } catch (Exception e) {
+            log.error("Failed to dispatch job {}", jobId, e);
+            try {
+                jobCommandService.failJob(jobId, e.getMessage());
+                settle(jobId);
+            } catch (Exception ex) {
+                // Keep the lease; it expires and the job is retried
+                log.error("Failed to mark job as failed: {}", jobId, ex);
+                heldJobs.remove(jobId);
+            }
+        }
+    }
+
+    private void settle(String jobId) {
+        try {
+            // Before removing the entry, so a crash in between repeats the fan-out
+            fanOut.settleFollowers(jobId);
+            jobQueue.remove(nodeId, jobId);
+        } catch (Exception e) {
+            // The next owner finds the job settled and drops the entry
+            log.warn("Failed to settle queue entry of job {}", jobId, e);
+        } finally {
+            heldJobs.remove(jobId);
+        }
+    }
+
+    private void release(String jobId) {
+        // Before releasing, so a poll that claims the job again can dispatch it
+        heldJobs.remove(jobId);
+        try {
+            jobQueue.release(nodeId, jobId);
+        } catch (Exception e) {
+            // The lease expires and the job is claimed again
+            log.warn("Failed to return job {} to the queue", jobId, e);
+        }
+    }
+
+    private static boolean isFinal(JobStatusEnum status) {
+        return status == JobStatusEnum.COMPLETED
+                || status == JobStatusEnum.FAILED
+                || status == JobStatusEnum.CANCELLED;
+    }
+}
@@ -0,0 +1,257 @@
+package de.ma.download.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ma.download.dto.ReportRequest;
+import de.ma.download.dto.SubscriptionDTO;
+import de.ma.download.dto.SubscriptionRequest;
+import de.ma.download.entity.ReportSubscriptionEntity;
+import de.ma.download.exception.InvalidSubscriptionException;
+import de.ma.download.exception.ServiceOverloadedException;
+import de.ma.download.exception.SubscriptionNotFoundException;
+import de.ma.download.repository.ReportSubscriptionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Recurring report subscriptions. Each run generates a distinct report only
+ * once: subscriptions to the same shared report are due at the same time
+ * and are started together, while the run times of different reports are
+ * spread by a stable jitter so they do not all start on the hour.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportSubscriptionService {
+
+    private final ReportSubscriptionRepository subscriptionRepository;
+    private final JobManagementService jobManagementService;
+    private final JobQueueWorker jobQueueWorker;
+    private final ResultCacheService resultCacheService;
+    private final UserContextService userContextService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${file.generation.subscriptions.zone:UTC}")
+    private ZoneId zone;
+
+    @Value("${file.generation.subscriptions.max-jitter:PT5M}")
+    private Duration maxJitter;
+
+    @Value("${file.generation.subscriptions.min-interval:PT15M}")
+    private Duration minInterval;
+
+    @Value("${file.generation.subscriptions.max-per-user:20}")
+    private long maxPerUser;
+
+    @Value("${file.generation.subscriptions.batch-size:500}")
+    private int batchSize;
+
+    @Transactional
+    public SubscriptionDTO subscribe(SubscriptionRequest request) {
+        String userId = userContextService.getCurrentUserId();
+        CronExpression cron = parseCron(request.getCron());
+
+        if (subscriptionRepository.countByUserId(userId) >= maxPerUser) {
+            throw new InvalidSubscriptionException("You can have at most " + maxPerUser + " subscriptions");
+        }
+
+        ReportRequest report = request.getReport();
+        Instant now = Instant.now();
+        ReportSubscriptionEntity subscription = ReportSubscriptionEntity.builder()
+                .subscriptionId(UUID.randomUUID().toString())
+                .userId(userId)
+                .fileType(report.getFileType())
+                .parameters(serializeRequest(report))
+                .cronExpression(request.getCron())
+                .createdAt(now)
+                .build();
+        subscription.setNextRunAt(nextRunAt(subscription, cron, now));
+
+        subscriptionRepository.save(subscription);
+        log.info("Subscription created: {}, Type: {}, User: {}, next run: {}",
+                subscription.getSubscriptionId(), subscription.getFileType(), userId, subscription.getNextRunAt());
+
+        return toDto(subscription);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SubscriptionDTO> getSubscriptions() {
+        String userId = userContextService.getCurrentUserId();
+        return subscriptionRepository.findByUserIdOrderByCreatedAtAsc(userId).stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    @Transactional
+    public void unsubscribe(String subscriptionId) {
+        String userId = userContextService.getCurrentUserId();
+        ReportSubscriptionEntity subscription = subscriptionRepository
+                .findBySubscriptionIdAndUserId(subscriptionId, userId)
+                .orElseThrow(() -> new SubscriptionNotFoundException(subscriptionId));
+
+        subscriptionRepository.delete(subscription);
+        log.info("Subscription deleted: {}", subscriptionId);
+    }
+
+    /**
+     * Start the runs of all due subscriptions. Due rows are locked for the
+     * transaction, so with several nodes every run is started once. The jobs
+     * of each run commit first; should this transaction then fail, the runs
+     * are started again by the next poll.
+     */
+    @Scheduled(fixedDelayString = "${file.generation.subscriptions.poll-interval-ms:30000}")
+    @Transactional
+    public void runDueSubscriptions() {
+        Instant now = Instant.now();
+        List<ReportSubscriptionEntity> due = subscriptionRepository.lockDue(now, batchSize);
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // Group subscriptions whose results may be shared; each group is generated once
+        Map<String, List<ReportSubscriptionEntity>> groups = new LinkedHashMap<>();
+        Map<String, ReportRequest> requests = new LinkedHashMap<>();
+        Map<String, String> resultKeys = new LinkedHashMap<>();
+        for (ReportSubscriptionEntity subscription : due) {
+            ReportRequest request = readRequest(subscription);
+            if (request == null) {
+                subscription.setNextRunAt(null);
+                continue;
+            }
+
+            String resultKey = resultCacheService.resultKey(request, subscription.getUserId());
+            String group = resultKey != null && resultCacheService.isShared(request) ?
+                    resultKey : subscription.getSubscriptionId();
+            groups.computeIfAbsent(group, key -> new ArrayList<>()).add(subscription);
+            requests.putIfAbsent(group, request);
+            resultKeys.putIfAbsent(group, resultKey);
+        }
+
+        try {
+            jobQueueWorker.checkBacklog(groups.size());
+        } catch (ServiceOverloadedException e) {
+            // Left due; the next poll tries again
+            log.warn("Job queue full, postponing {} subscription runs", due.size());
+            return;
+        }
+
+        // Each group's jobs commit on their own, so a group that fails only skips its own run
+        int started = 0;
+        int failed = 0;
+        for (Map.Entry<String, List<ReportSubscriptionEntity>> group : groups.entrySet()) {
+            List<ReportSubscriptionEntity> subscriptions = group.getValue();
+            List<String> jobIds;
+            try {
+                jobIds = jobManagementService.initiateScheduledJobs(
+                        requests.get(group.getKey()), resultKeys.get(group.getKey()),
+                        subscriptions.stream().map(ReportSubscriptionEntity::getUserId).toList());
+                started += subscriptions.size();
+            } catch (Exception e) {
+                log.error("Failed to start run of subscriptions {}, skipping to their next run",
+                        subscriptions.stream().map(ReportSubscriptionEntity::getSubscriptionId).toList(), e);
+                jobIds = null;
+                failed++;
+            }
+
+            for (int i = 0; i < subscriptions.size(); i++) {
+                ReportSubscriptionEntity subscription = subscriptions.get(i);
+                if (jobIds != null) {
+                    subscription.setLastRunAt(now);
+                    subscription.setLastJobId(jobIds.get(i));
+                }
+                subscription.setNextRunAt(nextRunAt(subscription,
+                        CronExpression.parse(subscription.getCronExpression()), now));
+            }
+        }
+
+        log.info("Started {} subscription runs as {} generations, {} generations failed",
+                started, groups.size() - failed, failed);
+    }
+
+    private CronExpression parseCron(String expression) {
+        CronExpression cron;
+        try {
+            cron = CronExpression.parse(expression);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSubscriptionException("Invalid cron expression: " + e.getMessage());
+        }
+
+        ZonedDateTime first = cron.next(ZonedDateTime.now(zone));
+        if (first == null) {
+            throw new InvalidSubscriptionException("Cron expression never fires: " + expression);
+        }
+        ZonedDateTime second = cron.next(first);
+        if (second != null && Duration.between(first, second).compareTo(minInterval) < 0) {
+            throw new InvalidSubscriptionException("Reports can be scheduled at most every " + minInterval);
+        }
+        return cron;
+    }
+
+    /**
+     * Next fire time of the cron expression plus a jitter of at most half the
+     * period. The jitter only depends on the report, so subscribers of the
+     * same report stay due together.
+     * @return The next run, or null if the schedule has no more runs
+     */
+    private Instant nextRunAt(ReportSubscriptionEntity subscription, CronExpression cron, Instant after) {
+        ZonedDateTime next = cron.next(after.atZone(zone));
+        if (next == null) {
+            return null;
+        }
+
+        long bound = maxJitter.toMillis();
+        ZonedDateTime following = cron.next(next);
+        if (following != null) {
+            bound = Math.min(bound, Duration.between(next, following).toMillis() / 2);
+        }
+        String report = subscription.getFileType() + "|" + subscription.getParameters();
+        long jitter = bound > 0 ? Math.floorMod(report.hashCode(), bound) : 0;
+
+        return next.toInstant().plusMillis(jitter);
+    }
+
+    private ReportRequest readRequest(ReportSubscriptionEntity subscription) {
+        try {
+            return objectMapper.readValue(subscription.getParameters(), ReportRequest.class);
+        } catch (JsonProcessingException e) {
+            log.error("Subscription {} has unreadable parameters, disabling it", subscription.getSubscriptionId(), e);
+            return null;
+        }
+    }
+
+    private String serializeRequest(ReportRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Report request cannot be serialized", e);
+        }
+    }
+
+    private SubscriptionDTO toDto(ReportSubscriptionEntity subscription) {
+        return SubscriptionDTO.builder()
+                .subscriptionId(subscription.getSubscriptionId())
+                .fileType(subscription.getFileType())
+                .report(readRequest(subscription))
+                .cron(subscription.getCronExpression())
+                .nextRunAt(subscription.getNextRunAt())
+                .lastRunAt(subscription.getLastRunAt())
+                .lastJobId(subscription.getLastJobId())
+                .createdAt(subscription.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,141 @@
+package de.ma.download.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ma.download.dto.GeneratedFile;
+import de.ma.download.dto.ReportRequest;
+import de.ma.download.generator.FileGenerator;
+import de.ma.download.generator.GeneratorRegistry;
+import de.ma.download.generator.ResultCachePolicy;
+import de.ma.download.model.JobStatusEnum;
+import de.ma.download.repository.JobRepository;
+import de.ma.download.repository.JobSummaryView;
+import de.ma.download.storage.ArtifactStore;
+import de.ma.download.storage.StoredArtifact;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Reuses the artifact of a completed job for identical report requests.
+ * Jobs are matched by a result key built from the file type, the request
+ * values the generator declares relevant, the user (unless the result is
+ * shared) and the current time bucket.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ResultCacheService {
+
+    private final GeneratorRegistry generatorRegistry;
+    private final JobRepository jobRepository;
+    private final ArtifactStore artifactStore;
+    private final ObjectMapper objectMapper;
+
+    @Value("${file.generation.result-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${file.generation.single-flight.enabled:true}")
+    private boolean singleFlightEnabled;
+
+    /**
+     * Compute the result key for a request; it also identifies identical
+     * generations in flight
+     * @return The key, or null if results of this request are not reusable
+     */
+    public String resultKey(ReportRequest request, String userId) {
+        if (!enabled && !singleFlightEnabled) {
+            return null;
+        }
+
+        FileGenerator<ReportRequest> generator = generatorRegistry.getGenerator(request.getFileType());
+        ResultCachePolicy policy = generator.getResultCachePolicy();
+        if (policy == null) {
+            return null;
+        }
+
+        long bucket = Instant.now().getEpochSecond() / policy.getBucket().toSeconds();
+        String scope = policy.getScope() == ResultCachePolicy.Scope.GLOBAL ? "*" : userId;
+
+        try {
+            String canonical = request.getFileType() + "|" + request.getOutputFormat() + "|" +
+                    scope + "|" + bucket + "|" +
+                    objectMapper.writeValueAsString(generator.getResultCacheKey(request));
+            return sha256(canonical);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not build result key for {}, generating without cache", request.getFileType(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Whether results under the given key are shared by all users
+     */
+    public boolean isShared(ReportRequest request) {
+        ResultCachePolicy policy = generatorRegistry.getGenerator(request.getFileType()).getResultCachePolicy();
+        return policy != null && policy.getScope() == ResultCachePolicy.Scope.GLOBAL;
+    }
+
+    /**
+     * Find the result of a completed job with the same key
+     */
+    @Transactional(readOnly = true)
+    public Optional<GeneratedFile> findCachedResult(String resultKey) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return jobRepository.findFirstSummaryByResultKeyAndStatusOrderByCompletedAtDesc(resultKey, JobStatusEnum.COMPLETED)
+                .filter(job -> isReusable(job) && artifactStore.exists(job.getArtifactKey()))
+                .map(job -> {
+                    // Reused by a new job; keep cleanup from deleting it before that job commits
+                    artifactStore.touch(job.getArtifactKey());
+                    return toGeneratedFile(job);
+                });
+    }
+
+    /**
+     * Whether the artifact of a completed job can be handed to another job.
+     * Jobs completed before stored sizes were recorded only have the file size,
+     * which equals the stored size of their unencoded artifact.
+     */
+    static boolean isReusable(JobSummaryView job) {
+        return job.getArtifactKey() != null && (job.getStoredSize() != null || job.getFileSize() != null);
+    }
+
+    /**
+     * The artifact of a completed job as a generated file
+     * @see #isReusable(JobSummaryView)
+     */
+    static GeneratedFile toGeneratedFile(JobSummaryView job) {
+        long storedSize = job.getStoredSize() != null ? job.getStoredSize() : job.getFileSize();
+        return GeneratedFile.builder()
+                .fileName(job.getFileName())
+                .contentType(job.getContentType())
+                .artifact(StoredArtifact.builder()
+                        .key(job.getArtifactKey())
+                        .size(storedSize)
+                        .encoding(job.getContentEncoding())
+                        .contentHash(job.getContentHash())
+                        .contentLength(job.getFileSize() != null ? job.getFileSize() : storedSize)
+                        .build())
+                .build();
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package de.ma.download.service;
+
+import de.ma.download.dto.GeneratedFile;
+import de.ma.download.entity.JobEntity;
+import de.ma.download.model.JobStatusEnum;
+import de.ma.download.repository.JobRepository;
+import de.ma.download.repository.JobSummaryView;
+import de.ma.download.storage.ArtifactStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Settles jobs that wait for the artifact of a shared source job, such as
+ * the subscriber jobs of a scheduled report run
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SharedJobFanOut {
+
+    private final JobRepository jobRepository;
+    private final JobCommandService jobCommandService;
+    private final ArtifactStore artifactStore;
+
+    /**
+     * Complete or fail the pending jobs of a source job that has settled;
+     * jobs their owners cancelled are left alone
+     */
+    public void settleFollowers(String sourceJobId) {
+        List<JobEntity> followers = jobRepository.findBySourceJobIdAndStatus(sourceJobId, JobStatusEnum.PENDING);
+        if (followers.isEmpty()) {
+            return;
+        }
+
+        JobSummaryView source = jobRepository.findSummaryByJobId(sourceJobId).orElse(null);
+        JobStatusEnum status = source != null ? source.getStatus() : null;
+        if (status == JobStatusEnum.PENDING || status == JobStatusEnum.IN_PROGRESS) {
+            return;
+        }
+
+        GeneratedFile file = status == JobStatusEnum.COMPLETED && ResultCacheService.isReusable(source) ?
+                ResultCacheService.toGeneratedFile(source) : null;
+        if (file != null) {
+            artifactStore.touch(source.getArtifactKey());
+        }
+        String reason = source != null && source.getFailureReason() != null ?
+                source.getFailureReason() : "Shared report generation did not complete";
+
+        // A follower may be cancelled after it was read, so each is settled only while still pending
+        Predicate<JobEntity> pending = job -> job.getStatus() == JobStatusEnum.PENDING;
+        int settled = 0;
+        for (JobEntity follower : followers) {
+            try {
+                JobEntity job = file != null ?
+                        jobCommandService.completeJob(follower.getJobId(), file, pending) :
+                        jobCommandService.failJob(follower.getJobId(), reason, pending);
+                if (job != null) {
+                    settled++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to settle job {} of source job {}", follower.getJobId(), sourceJobId, e);
+            }
+        }
+        log.info("Settled {} of {} jobs of source job {} ({})", settled, followers.size(), sourceJobId, status);
+    }
+}
@@ -26,6 +26,7 @@ public class WebSocketNotificationService {
                 .jobId(job.getJobId())
                 .fileType(job.getFileType())
                 .status(job.getStatus())
+                .progress(job.getProgress())
                 .updatedAt(Instant.now())
                 .fileName(job.getFileName())
                 .fileSize(job.getFileSize())
@@ -51,6 +52,24 @@ public class WebSocketNotificationService {
         }
     }
 
+    public void notifyJobProgress(JobEntity job, int progress) {
+        String destination = "/queue/job-updates/" + job.getJobId();
+
+        JobStatusUpdateMessage message = JobStatusUpdateMessage.builder()
+                .jobId(job.getJobId())
+                .fileType(job.getFileType())
+                .status(JobStatusEnum.IN_PROGRESS)
+                .progress(progress)
+                .updatedAt(Instant.now())
+                .build();
+
+        try {
+            messagingTemplate.convertAndSendToUser(job.getUserId(), destination, message);
+        } catch (Exception e) {
+            log.error("Failed to send WebSocket progress update", e);
+        }
+    }
+
     public void sendServiceNotification(String userId, ServiceNotification.NotificationType type, String message) {
         ServiceNotification notification = ServiceNotification.builder()
                 .type(type)
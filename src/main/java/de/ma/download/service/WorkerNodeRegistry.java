@@ -0,0 +1,64 @@
+package de.ma.download.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Node membership and capacity in the {@code worker_nodes} table. Times
+ * are taken from the database clock so nodes need not agree on theirs.
+ */
+@Component
+@RequiredArgsConstructor
+public class WorkerNodeRegistry {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Register the node or refresh its advertised capacity
+     */
+    public void advertise(String nodeId, int capacity, int running, int queued) {
+        jdbcTemplate.update("""
+                INSERT INTO worker_nodes (node_id, capacity, running, queued, started_at, heartbeat_at)
+                VALUES (?, ?, ?, ?, now(), now())
+                ON CONFLICT (node_id) DO UPDATE
+                   SET capacity = EXCLUDED.capacity,
+                       running = EXCLUDED.running,
+                       queued = EXCLUDED.queued,
+                       heartbeat_at = EXCLUDED.heartbeat_at
+                """, nodeId, capacity, running, queued);
+    }
+
+    /**
+     * Free slots summed over all live nodes
+     */
+    public int totalFreeSlots(Duration nodeTtl) {
+        Integer free = jdbcTemplate.queryForObject("""
+                SELECT coalesce(sum(greatest(capacity - running - queued, 0)), 0)
+                  FROM worker_nodes
+                 WHERE heartbeat_at >= now() - make_interval(secs => ?)
+                """, Integer.class, nodeTtl.toSeconds());
+        return free != null ? free : 0;
+    }
+
+    /**
+     * Remove nodes that stopped advertising from the capacity accounting.
+     * Their jobs are left to their leases: a node that is merely slow may
+     * still renew them, so they are only claimed once the leases expire.
+     * @return Ids of the removed nodes
+     */
+    public List<String> reapDeadNodes(Duration nodeTtl) {
+        return jdbcTemplate.queryForList("""
+                DELETE FROM worker_nodes
+                 WHERE heartbeat_at < now() - make_interval(secs => ?)
+                RETURNING node_id
+                """, String.class, nodeTtl.toSeconds());
+    }
+
+    public void remove(String nodeId) {
+        jdbcTemplate.update("DELETE FROM worker_nodes WHERE node_id = ?", nodeId);
+    }
+}
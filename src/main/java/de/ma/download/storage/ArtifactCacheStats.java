@@ -0,0 +1,19 @@
+package de.ma.download.storage;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Snapshot of the artifact cache counters
+ */
+@Value
+@Builder
+public class ArtifactCacheStats {
+    long hits;
+    long misses;
+    long evictions;
+    int entries;
+    long sizeBytes;
+    long maxSizeBytes;
+    boolean offHeap;
+}
@@ -0,0 +1,47 @@
+package de.ma.download.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content encodings an artifact can be stored in.
+ * The token matches the HTTP {@code Content-Encoding} value.
+ */
+public enum ArtifactEncoding {
+    GZIP("gzip") {
+        @Override
+        public OutputStream encode(OutputStream outputStream) throws IOException {
+            return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        }
+
+        @Override
+        public InputStream decode(InputStream inputStream) throws IOException {
+            return new GZIPInputStream(inputStream, BUFFER_SIZE);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String token;
+
+    ArtifactEncoding(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Wrap a stream so that data written to it is encoded
+     */
+    public abstract OutputStream encode(OutputStream outputStream) throws IOException;
+
+    /**
+     * Wrap a stream of encoded data so that reading from it yields the original content
+     */
+    public abstract InputStream decode(InputStream inputStream) throws IOException;
+}
@@ -0,0 +1,111 @@
+package de.ma.download.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage SPI for generated file artifacts.
+ * Artifacts are immutable and content-addressed: the key of an artifact is
+ * derived from its bytes, so identical content is stored only once.
+ */
+public interface ArtifactStore {
+
+    /**
+     * Open a writer for a new artifact. The artifact becomes visible once
+     * {@link ArtifactWriter#commit()} is called; closing without commit discards it.
+     */
+    ArtifactWriter openWriter() throws IOException;
+
+    /**
+     * Open a seekable read channel for the artifact with the given key
+     */
+    SeekableByteChannel openChannel(String key) throws IOException;
+
+    /**
+     * Get the size of the artifact in bytes
+     */
+    long size(String key) throws IOException;
+
+    boolean exists(String key);
+
+    /**
+     * Delete the artifact with the given key
+     * @return true if the artifact existed and was deleted
+     */
+    boolean delete(String key);
+
+    /**
+     * Mark the artifact as just used, so cleanup leaves it alone for a while.
+     * Called whenever a new job takes up an existing artifact.
+     */
+    default void touch(String key) {
+    }
+
+    /**
+     * When the artifact was last written or touched, if the store tracks it
+     */
+    default Optional<Instant> lastModified(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * Keys of the artifacts last written or touched before the cutoff, if the
+     * store can list its artifacts
+     */
+    default List<String> findKeysModifiedBefore(Instant cutoff) throws IOException {
+        return List.of();
+    }
+
+    /**
+     * Resolve the artifact to a local file, if the store keeps artifacts on the
+     * local filesystem. Allows callers to hand the file to the container for sendfile.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * Transfer a byte range of the artifact to the target channel
+     * @return The number of bytes transferred
+     */
+    default long transferTo(String key, long position, long count, WritableByteChannel target) throws IOException {
+        try (SeekableByteChannel channel = openChannel(key)) {
+            channel.position(position);
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long transferred = 0;
+            while (transferred < count) {
+                buffer.clear();
+                if (count - transferred < buffer.capacity()) {
+                    buffer.limit((int) (count - transferred));
+                }
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    break;
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                transferred += read;
+            }
+            return transferred;
+        }
+    }
+
+    /**
+     * Write the complete artifact to the given output stream
+     * @return The number of bytes written
+     */
+    default long writeTo(String key, OutputStream outputStream) throws IOException {
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        return transferTo(key, 0, size(key), target);
+    }
+}
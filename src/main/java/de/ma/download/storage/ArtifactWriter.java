@@ -0,0 +1,28 @@
+package de.ma.download.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writer for a single artifact. Obtained from {@link ArtifactStore#openWriter()}.
+ */
+public interface ArtifactWriter extends Closeable {
+
+    /**
+     * Stream that receives the artifact content
+     */
+    OutputStream getOutputStream();
+
+    /**
+     * Finish writing and make the artifact available under its content key
+     * @return The stored artifact reference
+     */
+    StoredArtifact commit() throws IOException;
+
+    /**
+     * Release resources; discards the content if the writer was not committed
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,44 @@
+package de.ma.download.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Opens artifact writers for generated files, applying the configured
+ * compression to content types that benefit from it
+ */
+@Component
+@RequiredArgsConstructor
+public class ArtifactWriterFactory {
+
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/json", "application/x-ndjson", "application/xml", "text/csv", "text/plain");
+
+    private final ArtifactStore artifactStore;
+
+    @Value("${file.storage.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    /**
+     * Open a writer for content of the given type
+     */
+    public ArtifactWriter open(String contentType) throws IOException {
+        ArtifactWriter writer = artifactStore.openWriter();
+        if (compressionEnabled && isCompressible(contentType)) {
+            return new EncodingArtifactWriter(writer, ArtifactEncoding.GZIP);
+        }
+        return new IdentityArtifactWriter(writer);
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String baseType = contentType.split(";", 2)[0].trim().toLowerCase();
+        return COMPRESSIBLE_TYPES.contains(baseType) || baseType.startsWith("text/");
+    }
+}
@@ -0,0 +1,78 @@
+package de.ma.download.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Read-only seekable channel over a byte buffer
+ */
+class ByteBufferChannel implements SeekableByteChannel {
+
+    private final ByteBuffer buffer;
+    private boolean open = true;
+
+    ByteBufferChannel(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int length = Math.min(dst.remaining(), buffer.remaining());
+        dst.put(dst.position(), buffer, buffer.position(), length);
+        dst.position(dst.position() + length);
+        buffer.position(buffer.position() + length);
+        return length;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return buffer.position();
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        buffer.position((int) Math.min(newPosition, buffer.limit()));
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return buffer.limit();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
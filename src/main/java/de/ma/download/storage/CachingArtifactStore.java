@@ -0,0 +1,207 @@
+package de.ma.download.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Artifact store decorator that keeps recently read artifacts in memory.
+ * Entries are bounded by a total byte budget and evicted in LRU order;
+ * artifacts larger than the entry limit are always read from the delegate.
+ * Buffers can be allocated off-heap to keep large caches out of the GC's way.
+ * Direct buffers are only freed once the GC collects them, so evicted entries
+ * keep holding native memory for a while; the budget bounds what is cached,
+ * not what is allocated, and {@code -XX:MaxDirectMemorySize} needs headroom
+ * above it.
+ * <p>
+ * Artifacts are immutable and content-addressed, so entries never go stale;
+ * they are only dropped on eviction or when the artifact is deleted.
+ * Local file paths are passed through, so sendfile downloads bypass the cache.
+ */
+@Slf4j
+public class CachingArtifactStore implements ArtifactStore {
+
+    private final ArtifactStore delegate;
+    private final long maxSizeBytes;
+    private final long maxEntryBytes;
+    private final boolean offHeap;
+
+    private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingArtifactStore(ArtifactStore delegate, long maxSizeBytes, long maxEntryBytes, boolean offHeap) {
+        this.delegate = delegate;
+        this.maxSizeBytes = maxSizeBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, Math.min(maxSizeBytes, Integer.MAX_VALUE));
+        this.offHeap = offHeap;
+        log.info("Artifact cache enabled: max size {} bytes, max entry {} bytes, off-heap: {}",
+                maxSizeBytes, this.maxEntryBytes, offHeap);
+    }
+
+    @Override
+    public ArtifactWriter openWriter() throws IOException {
+        return delegate.openWriter();
+    }
+
+    @Override
+    public SeekableByteChannel openChannel(String key) throws IOException {
+        ByteBuffer buffer = getOrLoad(key);
+        return buffer != null ? new ByteBufferChannel(buffer) : delegate.openChannel(key);
+    }
+
+    @Override
+    public long transferTo(String key, long position, long count, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = getOrLoad(key);
+        if (buffer == null) {
+            return delegate.transferTo(key, position, count, target);
+        }
+
+        int start = (int) Math.min(position, buffer.limit());
+        int end = (int) Math.min(position + count, buffer.limit());
+        ByteBuffer slice = buffer.slice(start, end - start);
+        while (slice.hasRemaining()) {
+            target.write(slice);
+        }
+        return end - start;
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        ByteBuffer buffer = get(key, false);
+        return buffer != null ? buffer.limit() : delegate.size(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return get(key, false) != null || delegate.exists(key);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        invalidate(key);
+        return delegate.delete(key);
+    }
+
+    @Override
+    public void touch(String key) {
+        delegate.touch(key);
+    }
+
+    @Override
+    public Optional<Instant> lastModified(String key) {
+        return delegate.lastModified(key);
+    }
+
+    @Override
+    public List<String> findKeysModifiedBefore(Instant cutoff) throws IOException {
+        return delegate.findKeysModifiedBefore(cutoff);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return delegate.localPath(key);
+    }
+
+    /**
+     * Drop a single artifact from the cache
+     */
+    public synchronized void invalidate(String key) {
+        ByteBuffer removed = entries.remove(key);
+        if (removed != null) {
+            sizeBytes -= removed.limit();
+        }
+    }
+
+    /**
+     * Drop all cached artifacts
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized ArtifactCacheStats getStats() {
+        return ArtifactCacheStats.builder()
+                .hits(hits.get())
+                .misses(misses.get())
+                .evictions(evictions.get())
+                .entries(entries.size())
+                .sizeBytes(sizeBytes)
+                .maxSizeBytes(maxSizeBytes)
+                .offHeap(offHeap)
+                .build();
+    }
+
+    /**
+     * Return a read view of the cached artifact, loading it from the delegate on
+     * a miss. Returns null if the artifact is too large to be cached.
+     */
+    private ByteBuffer getOrLoad(String key) throws IOException {
+        ByteBuffer cached = get(key, true);
+        if (cached != null) {
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        long size = delegate.size(key);
+        if (size > maxEntryBytes) {
+            return null;
+        }
+
+        // Load outside the lock; a concurrent load of the same key just loses the race
+        ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect((int) size) : ByteBuffer.allocate((int) size);
+        try (SeekableByteChannel channel = delegate.openChannel(key)) {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full
+            }
+        }
+        buffer.flip();
+
+        return put(key, buffer.asReadOnlyBuffer());
+    }
+
+    private synchronized ByteBuffer get(String key, boolean recordHit) {
+        ByteBuffer buffer = entries.get(key);
+        if (buffer == null) {
+            return null;
+        }
+        if (recordHit) {
+            hits.incrementAndGet();
+        }
+        return buffer.duplicate();
+    }
+
+    private synchronized ByteBuffer put(String key, ByteBuffer buffer) {
+        ByteBuffer existing = entries.get(key);
+        if (existing != null) {
+            return existing.duplicate();
+        }
+
+        Iterator<Map.Entry<String, ByteBuffer>> iterator = entries.entrySet().iterator();
+        while (sizeBytes + buffer.limit() > maxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, ByteBuffer> eldest = iterator.next();
+            sizeBytes -= eldest.getValue().limit();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+
+        entries.put(key, buffer);
+        sizeBytes += buffer.limit();
+        return buffer.duplicate();
+    }
+}
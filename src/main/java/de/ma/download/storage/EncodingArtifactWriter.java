@@ -0,0 +1,64 @@
+package de.ma.download.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Artifact writer that encodes content on the fly before handing it to the
+ * underlying store writer, while hashing and counting the unencoded bytes
+ */
+class EncodingArtifactWriter implements ArtifactWriter {
+
+    private final ArtifactWriter delegate;
+    private final ArtifactEncoding encoding;
+    private final OutputStream encodingStream;
+    private final MessageDigest digest;
+    private final CountingOutputStream outputStream;
+    private boolean committed;
+
+    EncodingArtifactWriter(ArtifactWriter delegate, ArtifactEncoding encoding) throws IOException {
+        this.delegate = delegate;
+        this.encoding = encoding;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        this.encodingStream = encoding.encode(delegate.getOutputStream());
+        this.outputStream = new CountingOutputStream(new DigestOutputStream(encodingStream, digest));
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public StoredArtifact commit() throws IOException {
+        // Closing flushes the encoder trailer into the delegate stream
+        outputStream.close();
+        StoredArtifact stored = delegate.commit();
+        committed = true;
+        return stored.toBuilder()
+                .encoding(encoding)
+                .contentHash(HexFormat.of().formatHex(digest.digest()))
+                .contentLength(outputStream.getCount())
+                .build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!committed) {
+                // Release the encoder; the delegate discards the partial content
+                encodingStream.close();
+            }
+        } finally {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package de.ma.download.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Artifact writer that stores content unencoded; the content hash is the store key
+ */
+class IdentityArtifactWriter implements ArtifactWriter {
+
+    private final ArtifactWriter delegate;
+
+    IdentityArtifactWriter(ArtifactWriter delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return delegate.getOutputStream();
+    }
+
+    @Override
+    public StoredArtifact commit() throws IOException {
+        StoredArtifact stored = delegate.commit();
+        return stored.toBuilder()
+                .contentHash(stored.getKey())
+                .contentLength(stored.getSize())
+                .build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,213 @@
+package de.ma.download.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Artifact store keeping artifacts as files below a root directory.
+ * Content is written to a temporary file while its SHA-256 hash is computed,
+ * then moved to {@code <root>/<first two hash chars>/<hash>}.
+ */
+@Slf4j
+public class LocalFileSystemArtifactStore implements ArtifactStore {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String TEMP_DIR = "tmp";
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path rootDir;
+    private final Path tempDir;
+
+    public LocalFileSystemArtifactStore(Path rootDir) {
+        this.rootDir = rootDir.toAbsolutePath().normalize();
+        this.tempDir = this.rootDir.resolve(TEMP_DIR);
+        try {
+            Files.createDirectories(tempDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create artifact directory: " + this.rootDir, e);
+        }
+        log.info("Using local artifact store at {}", this.rootDir);
+    }
+
+    @Override
+    public ArtifactWriter openWriter() throws IOException {
+        Path tempFile = Files.createTempFile(tempDir, "artifact-", ".part");
+        return new LocalArtifactWriter(tempFile);
+    }
+
+    @Override
+    public SeekableByteChannel openChannel(String key) throws IOException {
+        return FileChannel.open(resolve(key), StandardOpenOption.READ);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public boolean delete(String key) {
+        try {
+            return Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            log.error("Failed to delete artifact: {}", key, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void touch(String key) {
+        try {
+            touchFile(resolve(key));
+        } catch (IOException e) {
+            log.warn("Failed to touch artifact: {}", key, e);
+        }
+    }
+
+    @Override
+    public Optional<Instant> lastModified(String key) {
+        try {
+            return Optional.of(Files.getLastModifiedTime(resolve(key)).toInstant());
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<String> findKeysModifiedBefore(Instant cutoff) throws IOException {
+        // Artifacts sit exactly two levels down; the temp directory holds no committed ones
+        try (Stream<Path> files = Files.find(rootDir, 2, (path, attributes) ->
+                attributes.isRegularFile()
+                        && !path.startsWith(tempDir)
+                        && KEY_PATTERN.matcher(path.getFileName().toString()).matches()
+                        && attributes.lastModifiedTime().toInstant().isBefore(cutoff))) {
+            return files.map(path -> path.getFileName().toString()).toList();
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        Path path = resolve(key);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public long transferTo(String key, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            long transferred = 0;
+            while (transferred < count) {
+                long n = channel.transferTo(position + transferred, count - transferred, target);
+                if (n <= 0) {
+                    break;
+                }
+                transferred += n;
+            }
+            return transferred;
+        }
+    }
+
+    /**
+     * Set the modification time of the file to now
+     * @return false if the file does not exist
+     */
+    private static boolean touchFile(Path path) throws IOException {
+        try {
+            Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private Path resolve(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid artifact key: " + key);
+        }
+        return rootDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private class LocalArtifactWriter implements ArtifactWriter {
+        private final Path tempFile;
+        private final MessageDigest digest;
+        private final CountingOutputStream outputStream;
+        private boolean committed;
+
+        LocalArtifactWriter(Path tempFile) throws IOException {
+            this.tempFile = tempFile;
+            try {
+                this.digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(HASH_ALGORITHM + " not available", e);
+            }
+            this.outputStream = new CountingOutputStream(new DigestOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)), digest));
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public StoredArtifact commit() throws IOException {
+            outputStream.close();
+            String key = HexFormat.of().formatHex(digest.digest());
+            Path target = resolve(key);
+            Files.createDirectories(target.getParent());
+
+            try {
+                if (touchFile(target)) {
+                    // Identical content is already stored; touched so cleanup keeps it
+                    Files.delete(tempFile);
+                } else {
+                    Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(tempFile);
+            }
+
+            committed = true;
+            log.debug("Stored artifact {} ({} bytes)", key, outputStream.getCount());
+            return StoredArtifact.builder()
+                    .key(key)
+                    .size(outputStream.getCount())
+                    .build();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                outputStream.close();
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+}
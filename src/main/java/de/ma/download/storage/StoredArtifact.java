@@ -0,0 +1,36 @@
+package de.ma.download.storage;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Reference to an artifact held by an {@link ArtifactStore}
+ */
+@Value
+@Builder(toBuilder = true)
+public class StoredArtifact {
+    /**
+     * Content key of the stored bytes
+     */
+    String key;
+
+    /**
+     * Size of the stored bytes
+     */
+    long size;
+
+    /**
+     * Content encoding of the stored bytes, or null if stored unencoded
+     */
+    ArtifactEncoding encoding;
+
+    /**
+     * SHA-256 of the unencoded content
+     */
+    String contentHash;
+
+    /**
+     * Size of the unencoded content
+     */
+    long contentLength;
+}
@@ -0,0 +1,78 @@
+-- Initial schema, matching the JPA entities
+
+CREATE TABLE file_generation_jobs (
+    job_id           VARCHAR(255)                NOT NULL PRIMARY KEY,
+    file_type        VARCHAR(255)                NOT NULL,
+    status           VARCHAR(255)                NOT NULL,
+    artifact_key     VARCHAR(64),
+    content_encoding VARCHAR(255),
+    content_hash     VARCHAR(64),
+    stored_size      BIGINT,
+    created_at       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    completed_at     TIMESTAMP(6) WITH TIME ZONE,
+    failure_reason   VARCHAR(255),
+    user_id          VARCHAR(255),
+    file_name        VARCHAR(255),
+    file_size        BIGINT,
+    content_type     VARCHAR(255),
+    progress         INTEGER,
+    result_key       VARCHAR(64),
+    source_job_id    VARCHAR(255),
+    version          BIGINT
+);
+
+CREATE INDEX idx_jobs_result_key ON file_generation_jobs (result_key);
+CREATE INDEX idx_jobs_source_job_id ON file_generation_jobs (source_job_id);
+
+CREATE SEQUENCE job_events_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE job_events (
+    id         BIGINT                      NOT NULL PRIMARY KEY,
+    job_id     VARCHAR(255)                NOT NULL,
+    event_type VARCHAR(255)                NOT NULL,
+    timestamp  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    user_id    VARCHAR(255)                NOT NULL,
+    event_data OID,
+    sequence   BIGINT                      NOT NULL
+);
+
+-- Events are always read per job, in sequence order
+CREATE INDEX idx_job_events_job_id_sequence ON job_events (job_id, sequence);
+
+CREATE TABLE job_queue (
+    job_id           VARCHAR(255)                NOT NULL PRIMARY KEY,
+    user_id          VARCHAR(255),
+    file_type        VARCHAR(255)                NOT NULL,
+    parameters       TEXT,
+    result_key       VARCHAR(64),
+    enqueued_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    attempts         INTEGER                     NOT NULL,
+    lease_owner      VARCHAR(255),
+    lease_expires_at TIMESTAMP(6) WITH TIME ZONE
+);
+
+CREATE INDEX idx_job_queue_enqueued_at ON job_queue (enqueued_at);
+
+CREATE TABLE worker_nodes (
+    node_id      VARCHAR(255)                NOT NULL PRIMARY KEY,
+    capacity     INTEGER                     NOT NULL,
+    running      INTEGER                     NOT NULL,
+    queued       INTEGER                     NOT NULL,
+    started_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    heartbeat_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE report_subscriptions (
+    subscription_id VARCHAR(255)                NOT NULL PRIMARY KEY,
+    user_id         VARCHAR(255)                NOT NULL,
+    file_type       VARCHAR(255)                NOT NULL,
+    parameters      TEXT,
+    cron_expression VARCHAR(255)                NOT NULL,
+    next_run_at     TIMESTAMP(6) WITH TIME ZONE,
+    last_run_at     TIMESTAMP(6) WITH TIME ZONE,
+    last_job_id     VARCHAR(255),
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_subscriptions_user_id ON report_subscriptions (user_id);
+CREATE INDEX idx_subscriptions_next_run_at ON report_subscriptions (next_run_at);
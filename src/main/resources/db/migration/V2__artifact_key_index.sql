@@ -0,0 +1,2 @@
+-- The artifact cleanup looks up, for each stored artifact, whether a job references it
+CREATE INDEX idx_jobs_artifact_key ON file_generation_jobs (artifact_key);
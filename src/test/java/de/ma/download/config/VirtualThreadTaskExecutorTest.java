@@ -0,0 +1,84 @@
+package de.ma.download.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadTaskExecutorTest {
+
+    @Test
+    void runsAtMostMaxConcurrencyTasksAtOnce() throws InterruptedException {
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("test-", 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(10);
+
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(20);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(peak.get()).isEqualTo(2);
+    }
+
+    @Test
+    void runsTaskInterruptedWhileWaitingForSlot() throws InterruptedException {
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("test-", 1);
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        ThreadFactory factory = Thread.ofVirtual().factory();
+        ReflectionTestUtils.setField(executor, "threadFactory", (ThreadFactory) task -> {
+            Thread thread = factory.newThread(task);
+            threads.add(thread);
+            return thread;
+        });
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicBoolean interruptedWhileRunning = new AtomicBoolean(true);
+
+        executor.execute(() -> await(release));
+        executor.execute(() -> {
+            interruptedWhileRunning.set(Thread.currentThread().isInterrupted());
+            ran.countDown();
+        });
+        while (threads.size() < 2) {
+            Thread.sleep(5);
+        }
+        threads.get(1).interrupt();
+        release.countDown();
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(interruptedWhileRunning).isFalse();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package de.ma.download.controller;
+
+import de.ma.download.dto.ArtifactDownload;
+import de.ma.download.storage.ArtifactEncoding;
+import de.ma.download.storage.ArtifactStore;
+import de.ma.download.storage.ArtifactWriter;
+import de.ma.download.storage.LocalFileSystemArtifactStore;
+import de.ma.download.storage.StoredArtifact;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArtifactResponseWriterEncodingTest {
+
+    private static final String CONTENT = "id,name\n1,first\n2,second\n";
+
+    @TempDir
+    Path storeDir;
+
+    private ArtifactResponseWriter writer;
+    private ArtifactDownload download;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ArtifactStore store = new LocalFileSystemArtifactStore(storeDir);
+        StoredArtifact artifact;
+        try (ArtifactWriter artifactWriter = store.openWriter()) {
+            try (OutputStream encoded = ArtifactEncoding.GZIP.encode(artifactWriter.getOutputStream())) {
+                encoded.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+            }
+            artifact = artifactWriter.commit();
+        }
+
+        writer = new ArtifactResponseWriter(store);
+        download = ArtifactDownload.builder()
+                .jobId("job-1")
+                .fileName("report.csv")
+                .contentType("text/csv")
+                .fileSize((long) CONTENT.length())
+                .artifactKey(artifact.getKey())
+                .contentEncoding(ArtifactEncoding.GZIP)
+                .contentHash("content-hash")
+                .storedSize(artifact.getSize())
+                .build();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"gzip", "GZIP", "deflate, gzip;q=0.5", "*", "*;q=0, gzip", "gzip, *;q=0", "br;q=1, *;q=0.1"})
+    void sendsStoredEncodingWhenAccepted(String acceptEncoding) {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, request(acceptEncoding));
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + download.getArtifactKey() + "\"");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "identity", "deflate, br", "gzip;q=0", "*;q=1, gzip;q=0", "gzip;q=0, *", "gzip;q=abc"})
+    void decodesWhenStoredEncodingIsNotAccepted(String acceptEncoding) throws IOException {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, request(acceptEncoding));
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"content-hash\"");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+        assertThat(body.toString(StandardCharsets.UTF_8)).isEqualTo(CONTENT);
+    }
+
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        return request;
+    }
+}
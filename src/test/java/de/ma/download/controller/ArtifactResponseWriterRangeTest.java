@@ -0,0 +1,176 @@
+package de.ma.download.controller;
+
+import de.ma.download.dto.ArtifactDownload;
+import de.ma.download.storage.ArtifactStore;
+import de.ma.download.storage.ArtifactWriter;
+import de.ma.download.storage.LocalFileSystemArtifactStore;
+import de.ma.download.storage.StoredArtifact;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArtifactResponseWriterRangeTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+    private static final Instant COMPLETED_AT = Instant.parse("2025-01-02T03:04:05Z");
+
+    @TempDir
+    Path storeDir;
+
+    private ArtifactResponseWriter writer;
+    private ArtifactDownload download;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ArtifactStore store = new LocalFileSystemArtifactStore(storeDir);
+        StoredArtifact artifact;
+        try (ArtifactWriter artifactWriter = store.openWriter()) {
+            artifactWriter.getOutputStream().write(CONTENT.getBytes(StandardCharsets.UTF_8));
+            artifact = artifactWriter.commit();
+        }
+
+        writer = new ArtifactResponseWriter(store);
+        download = ArtifactDownload.builder()
+                .jobId("job-1")
+                .fileName("report.txt")
+                .contentType("text/plain")
+                .fileSize((long) CONTENT.length())
+                .completedAt(COMPLETED_AT)
+                .artifactKey(artifact.getKey())
+                .build();
+    }
+
+    @Test
+    void servesWholeArtifactWithoutRange() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, new MockHttpServletRequest());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(body(response)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void servesSingleRange() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, request("bytes=2-5"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/20");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(4);
+        assertThat(body(response)).isEqualTo("2345");
+    }
+
+    @Test
+    void clampsOpenAndOversizedRangesToArtifact() throws IOException {
+        ResponseEntity<StreamingResponseBody> open = writer.write(download, request("bytes=15-"));
+        assertThat(open.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 15-19/20");
+        assertThat(body(open)).isEqualTo("fghij");
+
+        ResponseEntity<StreamingResponseBody> oversized = writer.write(download, request("bytes=18-100"));
+        assertThat(oversized.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 18-19/20");
+        assertThat(body(oversized)).isEqualTo("ij");
+    }
+
+    @Test
+    void servesSuffixRange() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, request("bytes=-3"));
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 17-19/20");
+        assertThat(body(response)).isEqualTo("hij");
+    }
+
+    @Test
+    void servesSeveralRangesAsMultipart() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, request("bytes=0-1,10-11"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("multipart/byteranges");
+        String body = body(response);
+        assertThat(body).contains("Content-Range: bytes 0-1/20\r\n\r\n01");
+        assertThat(body).contains("Content-Range: bytes 10-11/20\r\n\r\nab");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(body.length());
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, request("bytes=20-25"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */20");
+    }
+
+    @Test
+    void dropsUnsatisfiableRangesOfSatisfiableSet() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, request("bytes=30-40,4-6"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 4-6/20");
+        assertThat(body(response)).isEqualTo("456");
+    }
+
+    @Test
+    void rejectsRangeSetLargerThanArtifact() {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, request("bytes=0-15,5-19"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
+    @Test
+    void rejectsMalformedRange() {
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, request("bytes=5-2"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
+    @Test
+    void honoursRangeWhenIfRangeMatches() {
+        MockHttpServletRequest byEtag = request("bytes=0-3");
+        byEtag.addHeader(HttpHeaders.IF_RANGE, "\"" + download.getArtifactKey() + "\"");
+        assertThat(writer.write(download, byEtag).getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+
+        MockHttpServletRequest byDate = request("bytes=0-3");
+        byDate.addHeader(HttpHeaders.IF_RANGE,
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(COMPLETED_AT.atZone(ZoneOffset.UTC)));
+        assertThat(writer.write(download, byDate).getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+    }
+
+    @Test
+    void servesWholeArtifactWhenIfRangeDoesNotMatch() throws IOException {
+        MockHttpServletRequest weak = request("bytes=0-3");
+        weak.addHeader(HttpHeaders.IF_RANGE, "W/\"" + download.getArtifactKey() + "\"");
+        ResponseEntity<StreamingResponseBody> response = writer.write(download, weak);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body(response)).isEqualTo(CONTENT);
+
+        MockHttpServletRequest stale = request("bytes=0-3");
+        stale.addHeader(HttpHeaders.IF_RANGE,
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(COMPLETED_AT.minusSeconds(60).atZone(ZoneOffset.UTC)));
+        assertThat(writer.write(download, stale).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    private static MockHttpServletRequest request(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, range);
+        return request;
+    }
+
+    private static String body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
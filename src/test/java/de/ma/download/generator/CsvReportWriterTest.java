@@ -0,0 +1,115 @@
+package de.ma.download.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReportWriterTest {
+
+    private final StringWriter out = new StringWriter();
+    private final CsvReportWriter writer = new CsvReportWriter(out);
+
+    @Test
+    void writesPlainCellsUnquoted() throws IOException {
+        writer.begin(Map.of());
+        writer.startRows("users", "id", "name");
+        writer.writeRow(1, "alice");
+        writer.endRows();
+        writer.finish();
+
+        assertThat(out.toString()).isEqualTo("""
+                section,field,value\r
+                \r
+                section,id,name\r
+                users,1,alice\r
+                """);
+    }
+
+    @Test
+    void quotesCellsWithSeparatorsQuotesAndLineBreaks() throws IOException {
+        writer.begin(Map.of());
+        writer.startRows("notes", "text");
+        writer.writeRow("a,b");
+        writer.writeRow("say \"hi\"");
+        writer.writeRow("two\nlines");
+        writer.writeRow("carriage\rreturn");
+        writer.writeRow("\"");
+        writer.endRows();
+        writer.finish();
+
+        assertThat(out.toString()).endsWith(
+                "section,text\r\n" +
+                "notes,\"a,b\"\r\n" +
+                "notes,\"say \"\"hi\"\"\"\r\n" +
+                "notes,\"two\nlines\"\r\n" +
+                "notes,\"carriage\rreturn\"\r\n" +
+                "notes,\"\"\"\"\r\n");
+    }
+
+    @Test
+    void writesNullAsEmptyCell() throws IOException {
+        writer.begin(Map.of());
+        writer.startRows("users", "id", "name", "email");
+        writer.writeRow(1, null, "");
+        writer.endRows();
+        writer.finish();
+
+        assertThat(out.toString()).endsWith("users,1,,\r\n");
+    }
+
+    @Test
+    void writesMetadataAndFlattenedSummaryAsFieldValueBlock() throws IOException {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("reportName", "Activity, weekly");
+        metadata.put("generatedBy", "user-1");
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("users", 3);
+        totals.put("logins", Map.of("failed", 1));
+
+        writer.begin(metadata);
+        writer.writeField("totals", totals);
+        writer.finish();
+
+        assertThat(out.toString()).isEqualTo("""
+                section,field,value\r
+                metadata,reportName,"Activity, weekly"\r
+                metadata,generatedBy,user-1\r
+                summary,totals.users,3\r
+                summary,totals.logins.failed,1\r
+                """);
+    }
+
+    @Test
+    void startsNewBlockForSummaryAfterSection() throws IOException {
+        writer.begin(Map.of());
+        writer.startRows("users", "id");
+        writer.writeRow(1);
+        writer.endRows();
+        writer.writeField("count", 1);
+        writer.finish();
+
+        assertThat(out.toString()).endsWith("""
+                users,1\r
+                \r
+                section,field,value\r
+                summary,count,1\r
+                """);
+    }
+
+    @Test
+    void rejectsRowsNotMatchingColumns() throws IOException {
+        writer.begin(Map.of());
+        writer.startRows("users", "id", "name");
+
+        assertThatThrownBy(() -> writer.writeRow(1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> writer.writeField("count", 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,106 @@
+package de.ma.download.generator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SectionScopeTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void joinReturnsSectionsInForkOrder() throws Exception {
+        try (SectionScope scope = new SectionScope(executor, new CancellationToken(), null)) {
+            SectionScope.Section<String> slow = scope.fork(() -> {
+                Thread.sleep(50);
+                return "first";
+            });
+            SectionScope.Section<String> fast = scope.fork(() -> "second");
+
+            scope.join();
+
+            assertThat(slow.get()).isEqualTo("first");
+            assertThat(fast.get()).isEqualTo("second");
+        }
+    }
+
+    @Test
+    void cancelInterruptsInFlightSections() throws Exception {
+        CancellationToken cancellation = new CancellationToken();
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+
+        try (SectionScope scope = new SectionScope(executor, cancellation, null)) {
+            scope.fork(() -> blockUntilInterrupted(started, interrupted));
+            scope.fork(() -> blockUntilInterrupted(started, interrupted));
+            assertThat(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+
+            executor.execute(cancellation::cancel);
+
+            assertThatThrownBy(scope::join).isInstanceOf(CancellationException.class);
+            assertThat(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void deadlineInterruptsInFlightSections() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Instant deadline = Instant.now().plus(Duration.ofMillis(100));
+
+        try (SectionScope scope = new SectionScope(executor, new CancellationToken(), deadline)) {
+            scope.fork(() -> blockUntilInterrupted(started, interrupted));
+
+            assertThatThrownBy(scope::join).isInstanceOf(TimeoutException.class);
+            assertThat(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void failedSectionCancelsItsSiblings() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        try (SectionScope scope = new SectionScope(executor, new CancellationToken(), null)) {
+            scope.fork(() -> blockUntilInterrupted(started, interrupted));
+            assertThat(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+            scope.fork(() -> {
+                throw new IllegalStateException("section failed");
+            });
+
+            assertThatThrownBy(scope::join)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+            assertThat(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    private static Object blockUntilInterrupted(CountDownLatch started, CountDownLatch interrupted) {
+        started.countDown();
+        try {
+            Thread.sleep(Duration.ofMinutes(1));
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+        }
+        return null;
+    }
+}
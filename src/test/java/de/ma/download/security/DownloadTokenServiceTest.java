@@ -0,0 +1,116 @@
+package de.ma.download.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ma.download.dto.ArtifactDownload;
+import de.ma.download.exception.ResourceAccessDeniedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownloadTokenServiceTest {
+
+    private static final String SECRET = "test-signing-secret-of-sufficient-length";
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final ArtifactDownload download = ArtifactDownload.builder()
+            .jobId("job-1")
+            .fileName("report.pdf")
+            .contentType("application/pdf")
+            .fileSize(1234L)
+            .completedAt(Instant.parse("2025-01-02T03:04:05Z"))
+            .artifactKey("a".repeat(64))
+            .build();
+
+    @Test
+    void verifiesIssuedToken() {
+        DownloadTokenService service = service(SECRET, Duration.ofMinutes(5));
+
+        DownloadToken token = service.issue(download, "user-1");
+        DownloadClaims claims = service.verify(token.getToken());
+
+        assertThat(claims.getDownload()).isEqualTo(download);
+        assertThat(claims.getUserId()).isEqualTo("user-1");
+        assertThat(claims.getExpiresAt()).isEqualTo(token.getExpiresAt());
+        assertThat(token.getExpiresAt()).isAfter(Instant.now());
+    }
+
+    @Test
+    void acceptsTokenOfInstanceWithSameSecret() {
+        DownloadToken token = service(SECRET, Duration.ofMinutes(5)).issue(download, "user-1");
+
+        assertThat(service(SECRET, Duration.ofMinutes(5)).verify(token.getToken()).getUserId()).isEqualTo("user-1");
+    }
+
+    @Test
+    void rejectsTokenSignedWithOtherSecret() {
+        DownloadToken token = service("another-secret", Duration.ofMinutes(5)).issue(download, "user-1");
+
+        assertInvalid(service(SECRET, Duration.ofMinutes(5)), token.getToken());
+    }
+
+    @Test
+    void rejectsTokenOfOtherInstanceWithoutSecret() {
+        DownloadToken token = service("", Duration.ofMinutes(5)).issue(download, "user-1");
+
+        assertInvalid(service("", Duration.ofMinutes(5)), token.getToken());
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        DownloadTokenService service = service(SECRET, Duration.ofMinutes(5));
+        String token = service.issue(download, "user-1").getToken();
+        String[] parts = token.split("\\.");
+
+        String payload = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8);
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace("user-1", "user-2").getBytes(StandardCharsets.UTF_8));
+
+        assertInvalid(service, forged + "." + parts[1]);
+    }
+
+    @Test
+    void rejectsTamperedSignature() {
+        DownloadTokenService service = service(SECRET, Duration.ofMinutes(5));
+        String token = service.issue(download, "user-1").getToken();
+        char last = token.charAt(token.length() - 1);
+
+        assertInvalid(service, token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A'));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        DownloadTokenService service = service(SECRET, Duration.ofMinutes(5));
+
+        assertInvalid(service, "");
+        assertInvalid(service, "no-separator");
+        assertInvalid(service, ".signature-only");
+        assertInvalid(service, "payload.not*base64");
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        DownloadTokenService service = service(SECRET, Duration.ofSeconds(-1));
+        DownloadToken token = service.issue(download, "user-1");
+
+        assertThat(token.getExpiresAt()).isBefore(Instant.now());
+        assertInvalid(service, token.getToken());
+    }
+
+    private DownloadTokenService service(String secret, Duration ttl) {
+        return new DownloadTokenService(objectMapper, secret, ttl);
+    }
+
+    private static void assertInvalid(DownloadTokenService service, String token) {
+        assertThatThrownBy(() -> service.verify(token))
+                .isInstanceOf(ResourceAccessDeniedException.class)
+                .hasMessage("Download link is invalid or has expired");
+    }
+}
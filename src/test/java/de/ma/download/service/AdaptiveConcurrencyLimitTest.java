@@ -0,0 +1,169 @@
+package de.ma.download.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final Duration FAST = Duration.ofMillis(100);
+    private static final Duration SLOW = Duration.ofMillis(1000);
+    private static final int BASELINE_WINDOW = 32;
+
+    private AdaptiveConcurrencyLimit limit;
+
+    @BeforeEach
+    void setUp() {
+        limit = new AdaptiveConcurrencyLimit();
+        ReflectionTestUtils.setField(limit, "limit", 4);
+        ReflectionTestUtils.setField(limit, "minLimit", 2);
+        ReflectionTestUtils.setField(limit, "maxLimit", 6);
+        ReflectionTestUtils.setField(limit, "latencyTolerance", 2.0);
+        ReflectionTestUtils.setField(limit, "backoffRatio", 0.5);
+    }
+
+    @Test
+    void growsByOneAfterFullWindowAtLimit() {
+        samples(3, FAST, 4);
+        assertThat(limit.getLimit()).isEqualTo(4);
+
+        samples(1, FAST, 4);
+        assertThat(limit.getLimit()).isEqualTo(5);
+
+        // The next window is as long as the new limit
+        samples(4, FAST, 5);
+        assertThat(limit.getLimit()).isEqualTo(5);
+        samples(1, FAST, 5);
+        assertThat(limit.getLimit()).isEqualTo(6);
+    }
+
+    @Test
+    void doesNotGrowWhileBelowLimit() {
+        samples(20, FAST, 3);
+
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void stopsGrowingAtMaxLimit() {
+        samples(100, FAST, 6);
+
+        assertThat(limit.getLimit()).isEqualTo(6);
+    }
+
+    @Test
+    void backsOffMultiplicativelyWhenLatencyDegrades() {
+        warmUp();
+        // Pulls the smoothed latency to 280 ms, past twice the 100 ms baseline
+        samples(1, SLOW, 4);
+
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void toleratesLatencyWithinTolerance() {
+        warmUp();
+        samples(20, Duration.ofMillis(150), 1);
+
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void neverBacksOffBelowMinLimit() {
+        warmUp();
+        samples(20, SLOW, 4);
+
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void restartsWindowAfterBackoff() {
+        ReflectionTestUtils.setField(limit, "limit", 6);
+        ReflectionTestUtils.setField(limit, "minLimit", 3);
+        warmUp();
+        samples(1, SLOW, 6);
+        assertThat(limit.getLimit()).isEqualTo(3);
+
+        // Latency recovers, then a full window at the new limit is needed to grow
+        samples(20, FAST, 1);
+        assertThat(limit.getLimit()).isEqualTo(3);
+        samples(2, FAST, 3);
+        assertThat(limit.getLimit()).isEqualTo(3);
+        samples(1, FAST, 3);
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void singleFastOutlierDoesNotPinBaseline() {
+        Duration normal = Duration.ofMillis(3000);
+        samples(10, normal, 1);
+        // A job that completed unusually fast
+        samples(1, Duration.ofMillis(5), 1);
+        samples(20, normal, 1);
+
+        assertThat(limit.getLimit()).isEqualTo(4);
+
+        // Healthy samples at the limit still grow it
+        samples(4, normal, 4);
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void relearnsBaselineOnceSlowerWorkloadFillsWindow() {
+        warmUp();
+        samples(BASELINE_WINDOW - 4, SLOW, 4);
+        assertThat(limit.getLimit()).isEqualTo(2);
+
+        // With the window almost only slower jobs, they are the new normal
+        samples(2, SLOW, 2);
+        assertThat(limit.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void reportsSmoothedLatency() {
+        assertThat(limit.getAverageLatency()).isZero();
+
+        limit.onSample(FAST, 1);
+        assertThat(limit.getAverageLatency()).isEqualTo(FAST);
+
+        limit.onSample(Duration.ofMillis(600), 1);
+        assertThat(limit.getAverageLatency()).isEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void capsLimitAtExecutorCapacity() {
+        limit.capMaxLimit(3);
+        assertThat(limit.getLimit()).isEqualTo(3);
+
+        samples(10, FAST, 3);
+        assertThat(limit.getLimit()).isEqualTo(3);
+
+        limit.capMaxLimit(1);
+        assertThat(limit.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresCapacityAboveMaxLimit() {
+        limit.capMaxLimit(100);
+        samples(100, FAST, 6);
+
+        assertThat(limit.getLimit()).isEqualTo(6);
+    }
+
+    /**
+     * Fill the baseline window with fast jobs, without growing the limit
+     */
+    private void warmUp() {
+        samples(BASELINE_WINDOW, FAST, 1);
+    }
+
+    private void samples(int count, Duration latency, int inFlight) {
+        for (int i = 0; i < count; i++) {
+            limit.onSample(latency, inFlight);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package de.ma.download.service;
+
+import de.ma.download.DemoApplication;
+import de.ma.download.dto.UserActivityReportRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Path;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two nodes, each a full application context with its own node id, sharing
+ * one database
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ClusterIntegrationTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TempDir
+    private static Path artifactRoot;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+        jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void distributesClaimsAcrossNodes() {
+        JobManagementService jobs = nodeA.getBean(JobManagementService.class);
+        List<String> jobIds = IntStream.range(0, 8)
+                .mapToObj(i -> jobs.initiateJob(new UserActivityReportRequest(), principal("user-" + i)))
+                .toList();
+
+        Set<String> owners = new HashSet<>();
+        await(() -> {
+            owners.addAll(jdbcTemplate.queryForList(
+                    "SELECT DISTINCT lease_owner FROM job_queue WHERE lease_owner IS NOT NULL", String.class));
+            return countCompleted(jobIds) == jobIds.size();
+        });
+
+        assertThat(owners).containsExactlyInAnyOrder("node-a", "node-b");
+        // Settled jobs leave the queue right after their completion commits
+        await(() -> queued(jobIds) == 0);
+    }
+
+    @Test
+    void takesOverJobsOfDeadNodeOnceTheirLeasesExpire() {
+        jdbcTemplate.update("""
+                INSERT INTO worker_nodes (node_id, capacity, running, queued, started_at, heartbeat_at)
+                VALUES ('node-dead', 2, 2, 0, now() - interval '1 hour', now() - interval '1 hour')
+                """);
+        List<String> jobIds = List.of("dead-job-0", "dead-job-1");
+        for (String jobId : jobIds) {
+            jdbcTemplate.update("""
+                    INSERT INTO file_generation_jobs (job_id, file_type, status, created_at, user_id, progress, version)
+                    VALUES (?, 'USER_ACTIVITY_REPORT', 'IN_PROGRESS', now(), ?, 0, 0)
+                    """, jobId, "owner-of-" + jobId);
+            jdbcTemplate.update("""
+                    INSERT INTO job_queue (job_id, user_id, file_type, enqueued_at, attempts, lease_owner, lease_expires_at)
+                    VALUES (?, ?, 'USER_ACTIVITY_REPORT', now(), 1, 'node-dead', now() + interval '5 seconds')
+                    """, jobId, "owner-of-" + jobId);
+        }
+
+        await(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM worker_nodes WHERE node_id = 'node-dead'", Integer.class) == 0);
+
+        // Reaping the node leaves its leases alone until they expire
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT lease_owner FROM job_queue WHERE job_id IN (?, ?)", String.class, jobIds.toArray()))
+                .containsOnly("node-dead");
+
+        await(() -> countCompleted(jobIds) == jobIds.size());
+        await(() -> queued(jobIds) == 0);
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId) {
+        // Passed as arguments, which take precedence over application.yaml
+        return new SpringApplicationBuilder(DemoApplication.class).run(
+                "--spring.datasource.url=" + POSTGRES.getJdbcUrl(),
+                "--spring.datasource.username=" + POSTGRES.getUsername(),
+                "--spring.datasource.password=" + POSTGRES.getPassword(),
+                "--server.port=0",
+                "--file.storage.local.root-dir=" + artifactRoot.resolve(nodeId),
+                "--file.generation.node-id=" + nodeId,
+                "--file.generation.cluster.enabled=true",
+                "--file.generation.cluster.node-ttl=PT2S",
+                "--file.generation.queue.poll-interval-ms=200",
+                "--file.generation.queue.heartbeat-interval-ms=500",
+                "--file.generation.queue.lease-ttl=PT10S",
+                // Two slots per node, so one node cannot claim the whole backlog
+                "--file.generation.admission.initial-limit=2",
+                "--file.generation.admission.min-limit=1",
+                "--file.generation.admission.max-limit=2");
+    }
+
+    private static Principal principal(String name) {
+        return () -> name;
+    }
+
+    private static int countCompleted(List<String> jobIds) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM file_generation_jobs WHERE status = 'COMPLETED' AND job_id = ANY (?)",
+                Integer.class, (Object) jobIds.toArray(String[]::new));
+    }
+
+    private static int queued(List<String> jobIds) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM job_queue WHERE job_id = ANY (?)",
+                Integer.class, (Object) jobIds.toArray(String[]::new));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        Instant deadline = Instant.now().plus(TIMEOUT);
+        while (!condition.getAsBoolean()) {
+            assertThat(Instant.now()).as("condition met before timeout").isBefore(deadline);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package de.ma.download.service;
+
+import de.ma.download.exception.ServiceOverloadedException;
+import de.ma.download.model.FileType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class FairJobSchedulerTest {
+
+    private final ManualExecutor executor = new ManualExecutor();
+    private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+    private final List<String> started = new ArrayList<>();
+    private FairJobScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("file.generation.scheduler.cost.SYSTEM_HEALTH_REPORT", "3");
+
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit();
+        ReflectionTestUtils.setField(limit, "limit", 1);
+        ReflectionTestUtils.setField(limit, "minLimit", 1);
+        ReflectionTestUtils.setField(limit, "maxLimit", 1);
+        ReflectionTestUtils.setField(limit, "latencyTolerance", 1000.0);
+        ReflectionTestUtils.setField(limit, "backoffRatio", 0.5);
+
+        scheduler = new FairJobScheduler(executor, limit, taskScheduler, environment);
+        ReflectionTestUtils.setField(scheduler, "queueFactor", 10);
+        ReflectionTestUtils.setField(scheduler, "maxQueued", 10);
+        ReflectionTestUtils.setField(scheduler, "quantum", 1);
+        ReflectionTestUtils.setField(scheduler, "rejectionRetryDelay", Duration.ofSeconds(1));
+
+        // Occupies the only slot, so everything below queues up
+        submit("blocker", "blocker", FileType.USER_ACTIVITY_REPORT);
+    }
+
+    @Test
+    void alternatesBetweenUsers() {
+        submit("a1", "alice", FileType.USER_ACTIVITY_REPORT);
+        submit("a2", "alice", FileType.USER_ACTIVITY_REPORT);
+        submit("a3", "alice", FileType.USER_ACTIVITY_REPORT);
+        submit("b1", "bob", FileType.USER_ACTIVITY_REPORT);
+        submit("b2", "bob", FileType.USER_ACTIVITY_REPORT);
+        submit("c1", "carol", FileType.USER_ACTIVITY_REPORT);
+
+        drain();
+
+        assertThat(started).containsExactly("blocker", "a1", "b1", "c1", "a2", "b2", "a3");
+    }
+
+    @Test
+    void chargesJobsTheCostOfTheirType() {
+        submit("h1", "heavy", FileType.SYSTEM_HEALTH_REPORT);
+        submit("h2", "heavy", FileType.SYSTEM_HEALTH_REPORT);
+        for (int i = 1; i <= 6; i++) {
+            submit("l" + i, "light", FileType.USER_ACTIVITY_REPORT);
+        }
+
+        drain();
+
+        // A heavy job costs three rounds, in which the light user starts three jobs
+        assertThat(started).containsExactly("blocker", "l1", "l2", "h1", "l3", "l4", "l5", "h2", "l6");
+    }
+
+    @Test
+    void keepsOrderWithinUser() {
+        submit("a1", "alice", FileType.SYSTEM_HEALTH_REPORT);
+        submit("a2", "alice", FileType.USER_ACTIVITY_REPORT);
+        submit("a3", "alice", FileType.CUSTOM_REPORT);
+
+        drain();
+
+        assertThat(started).containsExactly("blocker", "a1", "a2", "a3");
+    }
+
+    @Test
+    void rejectsJobsBeyondQueueCapacity() {
+        for (int i = 0; i < 10; i++) {
+            submit("j" + i, "user" + i, FileType.USER_ACTIVITY_REPORT);
+        }
+
+        assertThatThrownBy(() -> submit("overflow", "alice", FileType.USER_ACTIVITY_REPORT))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(scheduler.getQueued()).isEqualTo(10);
+        assertThat(scheduler.getRunning()).isEqualTo(1);
+    }
+
+    @Test
+    void requeuesRejectedJobAtHeadWithItsTurn() {
+        submit("a1", "alice", FileType.USER_ACTIVITY_REPORT);
+        submit("b1", "bob", FileType.USER_ACTIVITY_REPORT);
+
+        executor.rejectNext = true;
+        executor.runNext();
+        submit("c1", "carol", FileType.USER_ACTIVITY_REPORT);
+
+        drain();
+
+        assertThat(started).containsExactly("blocker", "a1", "b1", "c1");
+        assertThat(scheduler.getQueued()).isZero();
+        assertThat(scheduler.getRunning()).isZero();
+    }
+
+    @Test
+    void retriesDispatchAfterRejectionWhenNothingRuns() {
+        submit("a1", "alice", FileType.USER_ACTIVITY_REPORT);
+
+        executor.rejectNext = true;
+        executor.runNext();
+        assertThat(started).containsExactly("blocker");
+        assertThat(scheduler.getQueued()).isEqualTo(1);
+
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(retry.capture(), any(Instant.class));
+        retry.getValue().run();
+        drain();
+
+        assertThat(started).containsExactly("blocker", "a1");
+    }
+
+    @Test
+    void leavesRetryToRunningJobs() {
+        AdaptiveConcurrencyLimit limit = (AdaptiveConcurrencyLimit) ReflectionTestUtils.getField(scheduler, "concurrencyLimit");
+        ReflectionTestUtils.setField(limit, "limit", 2);
+        ReflectionTestUtils.setField(limit, "maxLimit", 2);
+
+        executor.rejectNext = true;
+        submit("a1", "alice", FileType.USER_ACTIVITY_REPORT);
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+
+        drain();
+
+        assertThat(started).containsExactly("blocker", "a1");
+    }
+
+    @Test
+    void capsLimitAtThreadsNotQueueOfPool() {
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setMaxPoolSize(3);
+        pool.setQueueCapacity(25);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit();
+        ReflectionTestUtils.setField(limit, "limit", 10);
+        ReflectionTestUtils.setField(limit, "minLimit", 2);
+        ReflectionTestUtils.setField(limit, "maxLimit", 50);
+
+        new FairJobScheduler(pool, limit, taskScheduler, new MockEnvironment());
+
+        assertThat(limit.getLimit()).isEqualTo(3);
+    }
+
+    private void submit(String jobId, String userId, FileType fileType) {
+        scheduler.submit(jobId, userId, fileType, () -> started.add(jobId));
+    }
+
+    private void drain() {
+        while (executor.runNext()) {
+            // Each finished job dispatches the next one
+        }
+    }
+
+    /**
+     * Runs submitted tasks only when asked, on the test thread
+     */
+    private static class ManualExecutor implements TaskExecutor {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private boolean rejectNext;
+
+        @Override
+        public void execute(Runnable task) {
+            if (rejectNext) {
+                rejectNext = false;
+                throw new TaskRejectedException("Executor is full");
+            }
+            tasks.addLast(task);
+        }
+
+        boolean runNext() {
+            Runnable task = tasks.pollFirst();
+            if (task == null) {
+                return false;
+            }
+            task.run();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package de.ma.download.service;
+
+import de.ma.download.dto.GenerationTask;
+import de.ma.download.exception.ServiceOverloadedException;
+import de.ma.download.generator.GeneratorRegistry;
+import de.ma.download.model.FileType;
+import de.ma.download.storage.ArtifactWriterFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class FileGenerationServiceTest {
+
+    private static final String RESULT_KEY = "result-key";
+
+    private JobCommandService jobCommandService;
+    private FairJobScheduler fairJobScheduler;
+    private GenerationSingleFlight singleFlight;
+    private FileGenerationService service;
+
+    @BeforeEach
+    void setUp() {
+        jobCommandService = mock(JobCommandService.class);
+        fairJobScheduler = mock(FairJobScheduler.class);
+        singleFlight = new GenerationSingleFlight();
+        service = new FileGenerationService(mock(GeneratorRegistry.class), jobCommandService,
+                mock(ArtifactWriterFactory.class), mock(JobCancellationRegistry.class), fairJobScheduler,
+                mock(ResultCacheService.class), singleFlight, mock(JobProgressTracker.class),
+                mock(JobDeadlineWatchdog.class), mock(JobQueue.class));
+    }
+
+    @Test
+    void releasesFollowerThatCannotBeScheduledAfterLeaderFailed() {
+        AtomicInteger settled = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        // Another job leads the generation of the same result
+        assertThat(singleFlight.follow(RESULT_KEY)).isNull();
+        service.process(task(), settled::incrementAndGet, released::incrementAndGet);
+
+        doThrow(new ServiceOverloadedException("Too many jobs queued"))
+                .when(fairJobScheduler).submit(anyString(), anyString(), any(), any());
+        singleFlight.settle(RESULT_KEY, null);
+
+        assertThat(released).hasValue(1);
+        assertThat(settled).hasValue(0);
+        verify(jobCommandService, never()).failJob(anyString(), any(), any());
+        // The failed attempt to lead leaves the key free for the next claim
+        assertThat(singleFlight.follow(RESULT_KEY)).isNull();
+    }
+
+    private static GenerationTask task() {
+        return GenerationTask.builder()
+                .jobId("job-1")
+                .userId("user-1")
+                .fileType(FileType.USER_ACTIVITY_REPORT)
+                .resultKey(RESULT_KEY)
+                .leaseOwner("node-a")
+                .attempt(1)
+                .build();
+    }
+}
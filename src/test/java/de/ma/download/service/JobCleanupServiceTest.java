@@ -0,0 +1,64 @@
+package de.ma.download.service;
+
+import de.ma.download.repository.JobRepository;
+import de.ma.download.storage.ArtifactWriter;
+import de.ma.download.storage.LocalFileSystemArtifactStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobCleanupServiceTest {
+
+    private static final Duration GRACE_PERIOD = Duration.ofHours(1);
+
+    @TempDir
+    private Path root;
+
+    private final JobRepository jobRepository = mock(JobRepository.class);
+    private LocalFileSystemArtifactStore store;
+    private JobCleanupService cleanupService;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalFileSystemArtifactStore(root);
+        cleanupService = new JobCleanupService(jobRepository, mock(JobCommandService.class), store);
+        ReflectionTestUtils.setField(cleanupService, "artifactGracePeriod", GRACE_PERIOD);
+    }
+
+    @Test
+    void sweepDeletesOnlyUnreferencedArtifactsPastGracePeriod() throws IOException {
+        String orphaned = commit("result of a cancelled job", GRACE_PERIOD.multipliedBy(2));
+        String referenced = commit("result of a completed job", GRACE_PERIOD.multipliedBy(2));
+        String recent = commit("result of a job still completing", Duration.ZERO);
+        when(jobRepository.existsByArtifactKey(referenced)).thenReturn(true);
+
+        cleanupService.sweepOrphanedArtifacts();
+
+        assertThat(store.exists(orphaned)).isFalse();
+        assertThat(store.exists(referenced)).isTrue();
+        assertThat(store.exists(recent)).isTrue();
+    }
+
+    private String commit(String content, Duration age) throws IOException {
+        String key;
+        try (ArtifactWriter writer = store.openWriter()) {
+            writer.getOutputStream().write(content.getBytes(StandardCharsets.UTF_8));
+            key = writer.commit().getKey();
+        }
+        Files.setLastModifiedTime(store.localPath(key).orElseThrow(), FileTime.from(Instant.now().minus(age)));
+        return key;
+    }
+}
@@ -0,0 +1,122 @@
+package de.ma.download.service;
+
+import de.ma.download.generator.CancellationToken;
+import de.ma.download.model.FileType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.convert.support.ConfigurableConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobDeadlineWatchdogTest {
+
+    private static final Duration TICK = Duration.ofMillis(10);
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private JobDeadlineWatchdog watchdog;
+
+    @BeforeEach
+    void setUp() {
+        watchdog = new JobDeadlineWatchdog(new MockEnvironment());
+        ReflectionTestUtils.setField(watchdog, "tickDuration", TICK);
+        // Four slots of 10ms: deadlines past 40ms need more than one turn of the wheel
+        ReflectionTestUtils.setField(watchdog, "wheelSize", 4);
+        watchdog.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        watchdog.stop();
+    }
+
+    @Test
+    void timeoutsDefaultPerFileType() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("file.generation.timeout.default", "PT5M")
+                .withProperty("file.generation.timeout.CUSTOM_REPORT", "PT30M");
+        // Converts the Duration properties as the Spring Boot environment does
+        environment.setConversionService((ConfigurableConversionService) ApplicationConversionService.getSharedInstance());
+
+        JobDeadlineWatchdog configured = new JobDeadlineWatchdog(environment);
+
+        assertThat(configured.getTimeout(FileType.USER_ACTIVITY_REPORT)).isEqualTo(Duration.ofMinutes(5));
+        assertThat(configured.getTimeout(FileType.CUSTOM_REPORT)).isEqualTo(Duration.ofMinutes(30));
+        assertThat(new JobDeadlineWatchdog(new MockEnvironment()).getTimeout(FileType.CUSTOM_REPORT))
+                .isEqualTo(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void expiresTokenOnceDeadlinePassed() {
+        CancellationToken token = new CancellationToken();
+
+        JobDeadlineWatchdog.Watch watch = watchdog.watch("job-1", token, Duration.ofMillis(30));
+
+        awaitExpired(token);
+        assertThat(token.isCancelled()).isTrue();
+        assertThat(watch.release()).isFalse();
+        assertThat(watch.release()).isFalse();
+    }
+
+    @Test
+    void neverExpiresBeforeDeadlineAcrossWheelTurns() throws InterruptedException {
+        CancellationToken token = new CancellationToken();
+
+        watchdog.watch("job-1", token, Duration.ofMillis(300));
+
+        Thread.sleep(150);
+        assertThat(token.isExpired()).isFalse();
+        awaitExpired(token);
+    }
+
+    @Test
+    void releasedJobIsNotExpired() throws InterruptedException {
+        CancellationToken token = new CancellationToken();
+        JobDeadlineWatchdog.Watch watch = watchdog.watch("job-1", token, Duration.ofMillis(30));
+
+        assertThat(watch.release()).isTrue();
+        assertThat(watch.release()).isTrue();
+
+        Thread.sleep(150);
+        assertThat(token.isCancelled()).isFalse();
+    }
+
+    @Test
+    void expiresOnlyTheOverdueJobs() {
+        List<CancellationToken> released = new ArrayList<>();
+        List<CancellationToken> overdue = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            CancellationToken token = new CancellationToken();
+            JobDeadlineWatchdog.Watch watch = watchdog.watch("job-" + i, token, Duration.ofMillis(20 + i * 5));
+            if (i % 2 == 0 && watch.release()) {
+                released.add(token);
+            } else {
+                overdue.add(token);
+            }
+        }
+
+        overdue.forEach(JobDeadlineWatchdogTest::awaitExpired);
+        assertThat(released).hasSize(10).noneMatch(CancellationToken::isCancelled);
+    }
+
+    private static void awaitExpired(CancellationToken token) {
+        Instant deadline = Instant.now().plus(TIMEOUT);
+        while (!token.isExpired()) {
+            assertThat(Instant.now()).as("token expired before timeout").isBefore(deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package de.ma.download.service;
+
+import de.ma.download.entity.JobQueueEntity;
+import de.ma.download.model.FileType;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class JobQueueIntegrationTest {
+
+    private static final Duration LEASE_TTL = Duration.ofSeconds(60);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static JobQueue jobQueue;
+
+    @BeforeAll
+    static void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jobQueue = new JobQueue(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void clearQueue() {
+        jdbcTemplate.update("DELETE FROM job_queue");
+    }
+
+    @Test
+    void claimsOldestJobsFirstUpToLimit() {
+        enqueue(5);
+
+        List<JobQueueEntity> claimed = jobQueue.claim("node-a", 3, LEASE_TTL, Set.of());
+
+        assertThat(claimed).extracting(JobQueueEntity::getJobId).containsExactlyInAnyOrder("job-0", "job-1", "job-2");
+        assertThat(claimed).allSatisfy(entry -> {
+            assertThat(entry.getLeaseOwner()).isEqualTo("node-a");
+            assertThat(entry.getAttempts()).isEqualTo(1);
+            assertThat(entry.getLeaseExpiresAt()).isAfter(Instant.now().plusSeconds(30));
+            assertThat(entry.getFileType()).isEqualTo(FileType.USER_ACTIVITY_REPORT);
+        });
+        assertThat(jobQueue.countAvailable()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotClaimLeasedJobs() {
+        enqueue(3);
+        jobQueue.claim("node-a", 2, LEASE_TTL, Set.of());
+
+        List<JobQueueEntity> claimed = jobQueue.claim("node-b", 10, LEASE_TTL, Set.of());
+
+        assertThat(claimed).extracting(JobQueueEntity::getJobId).containsExactly("job-2");
+        assertThat(jobQueue.claim("node-c", 10, LEASE_TTL, Set.of())).isEmpty();
+    }
+
+    @Test
+    void concurrentClaimsGetDisjointJobs() throws Exception {
+        enqueue(200);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<List<JobQueueEntity>>> claims = new ArrayList<>();
+            for (int node = 0; node < 8; node++) {
+                String owner = "node-" + node;
+                claims.add(() -> {
+                    List<JobQueueEntity> mine = new ArrayList<>();
+                    List<JobQueueEntity> batch;
+                    while (!(batch = jobQueue.claim(owner, 7, LEASE_TTL, Set.of())).isEmpty()) {
+                        mine.addAll(batch);
+                    }
+                    return mine;
+                });
+            }
+
+            List<String> claimedIds = new ArrayList<>();
+            for (Future<List<JobQueueEntity>> result : executor.invokeAll(claims)) {
+                result.get().forEach(entry -> claimedIds.add(entry.getJobId()));
+            }
+
+            assertThat(claimedIds).hasSize(200).doesNotHaveDuplicates();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reclaimsJobsWhoseLeaseExpired() throws InterruptedException {
+        enqueue(1);
+        jobQueue.claim("node-a", 1, Duration.ZERO, Set.of());
+        Thread.sleep(20);
+
+        List<JobQueueEntity> claimed = jobQueue.claim("node-b", 1, LEASE_TTL, Set.of());
+
+        assertThat(claimed).singleElement().satisfies(entry -> {
+            assertThat(entry.getLeaseOwner()).isEqualTo("node-b");
+            assertThat(entry.getAttempts()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void neverReclaimsJobsTheOwnerStillHolds() throws InterruptedException {
+        enqueue(2);
+        jobQueue.claim("node-a", 2, Duration.ZERO, Set.of());
+        Thread.sleep(20);
+
+        List<JobQueueEntity> claimed = jobQueue.claim("node-a", 10, LEASE_TTL, Set.of("job-0"));
+
+        assertThat(claimed).extracting(JobQueueEntity::getJobId).containsExactly("job-1");
+        assertThat(attempts("job-0")).isEqualTo(1);
+    }
+
+    @Test
+    void renewsOnlyOwnLeases() throws InterruptedException {
+        enqueue(2);
+        jobQueue.claim("node-a", 1, LEASE_TTL, Set.of());
+        jobQueue.claim("node-b", 1, Duration.ZERO, Set.of());
+
+        int renewed = jobQueue.renew("node-a", List.of("job-0", "job-1"), LEASE_TTL);
+        Thread.sleep(20);
+
+        assertThat(renewed).isEqualTo(1);
+        assertThat(jobQueue.claim("node-c", 10, LEASE_TTL, Set.of()))
+                .extracting(JobQueueEntity::getJobId).containsExactly("job-1");
+    }
+
+    @Test
+    void releaseReturnsJobWithoutCountingTheAttempt() {
+        enqueue(1);
+        jobQueue.claim("node-a", 1, LEASE_TTL, Set.of());
+
+        jobQueue.release("node-b", "job-0");
+        assertThat(jobQueue.countAvailable()).isZero();
+
+        jobQueue.release("node-a", "job-0");
+        assertThat(jobQueue.countAvailable()).isEqualTo(1);
+        assertThat(attempts("job-0")).isZero();
+    }
+
+    @Test
+    void removesSettledJobOnlyForItsLeaseOwner() {
+        enqueue(2);
+        jobQueue.claim("node-a", 1, LEASE_TTL, Set.of());
+
+        jobQueue.remove("node-b", "job-0");
+        assertThat(attempts("job-0")).isEqualTo(1);
+
+        jobQueue.remove("node-a", "job-0");
+        assertThat(jobQueue.countAvailable()).isEqualTo(1);
+        assertThat(jobQueue.claim("node-a", 10, LEASE_TTL, Set.of()))
+                .extracting(JobQueueEntity::getJobId).containsExactly("job-1");
+    }
+
+    @Test
+    void lockLeaseRequiresOwnerAndAttempt() {
+        enqueue(1);
+        jobQueue.claim("node-a", 1, Duration.ZERO, Set.of());
+        jobQueue.claim("node-b", 1, LEASE_TTL, Set.of());
+
+        assertThat(jobQueue.lockLease("node-a", "job-0", 1)).isFalse();
+        assertThat(jobQueue.lockLease("node-b", "job-0", 1)).isFalse();
+        assertThat(jobQueue.lockLease("node-b", "job-0", 2)).isTrue();
+    }
+
+    private void enqueue(int count) {
+        Instant base = Instant.now().minusSeconds(count);
+        jobQueue.enqueue(IntStream.range(0, count)
+                .mapToObj(i -> JobQueueEntity.builder()
+                        .jobId("job-" + i)
+                        .userId("user-" + (i % 3))
+                        .fileType(FileType.USER_ACTIVITY_REPORT)
+                        .parameters("{}")
+                        .enqueuedAt(base.plusSeconds(i))
+                        .build())
+                .toList());
+    }
+
+    private int attempts(String jobId) {
+        Integer attempts = jdbcTemplate.queryForObject(
+                "SELECT attempts FROM job_queue WHERE job_id = ?", Integer.class, jobId);
+        return attempts != null ? attempts : -1;
+    }
+}
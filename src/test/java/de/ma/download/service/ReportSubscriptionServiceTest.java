@@ -0,0 +1,168 @@
+package de.ma.download.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ma.download.dto.ReportRequest;
+import de.ma.download.dto.SubscriptionDTO;
+import de.ma.download.dto.SubscriptionRequest;
+import de.ma.download.dto.SystemHealthReportRequest;
+import de.ma.download.dto.UserActivityReportRequest;
+import de.ma.download.entity.ReportSubscriptionEntity;
+import de.ma.download.model.FileType;
+import de.ma.download.repository.ReportSubscriptionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportSubscriptionServiceTest {
+
+    private static final String HOURLY = "0 0 * * * *";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ReportSubscriptionRepository subscriptionRepository;
+    private JobManagementService jobManagementService;
+    private ResultCacheService resultCacheService;
+    private UserContextService userContextService;
+    private ReportSubscriptionService service;
+
+    @BeforeEach
+    void setUp() {
+        subscriptionRepository = mock(ReportSubscriptionRepository.class);
+        jobManagementService = mock(JobManagementService.class);
+        resultCacheService = mock(ResultCacheService.class);
+        userContextService = mock(UserContextService.class);
+        service = new ReportSubscriptionService(subscriptionRepository, jobManagementService,
+                mock(JobQueueWorker.class), resultCacheService, userContextService, objectMapper);
+        ReflectionTestUtils.setField(service, "zone", ZoneId.of("UTC"));
+        ReflectionTestUtils.setField(service, "maxJitter", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(service, "minInterval", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(service, "maxPerUser", 20L);
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+
+        // System health reports are shared by all users, activity reports are per user
+        when(resultCacheService.resultKey(any(), anyString()))
+                .thenAnswer(invocation -> invocation.<ReportRequest>getArgument(0).getFileType() ==
+                        FileType.SYSTEM_HEALTH_REPORT ? "health" : "activity-" + invocation.getArgument(1));
+        when(resultCacheService.isShared(any()))
+                .thenAnswer(invocation -> invocation.<ReportRequest>getArgument(0).getFileType() ==
+                        FileType.SYSTEM_HEALTH_REPORT);
+    }
+
+    @Test
+    void jitterStaysBelowMaxJitter() {
+        assertJitterBelow(HOURLY, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void jitterStaysBelowHalfThePeriod() {
+        ReflectionTestUtils.setField(service, "maxJitter", Duration.ofHours(1));
+
+        assertJitterBelow("0 */15 * * * *", Duration.ofMillis(Duration.ofMinutes(15).toMillis() / 2));
+    }
+
+    @Test
+    void subscribersOfSameReportAreDueTogether() {
+        when(userContextService.getCurrentUserId()).thenReturn("user-a", "user-b");
+        SubscriptionRequest request = new SubscriptionRequest(new SystemHealthReportRequest(true), HOURLY);
+
+        assertThat(service.subscribe(request).getNextRunAt()).isEqualTo(service.subscribe(request).getNextRunAt());
+    }
+
+    @Test
+    void startsOneGenerationPerSharedReport() throws Exception {
+        ReportSubscriptionEntity healthA = subscription("sub-a", "user-a", new SystemHealthReportRequest());
+        ReportSubscriptionEntity activityB = subscription("sub-b", "user-b", new UserActivityReportRequest());
+        ReportSubscriptionEntity healthC = subscription("sub-c", "user-c", new SystemHealthReportRequest());
+        ReportSubscriptionEntity activityC = subscription("sub-d", "user-c", new UserActivityReportRequest());
+        when(subscriptionRepository.lockDue(any(), anyInt())).thenReturn(List.of(healthA, activityB, healthC, activityC));
+        when(jobManagementService.initiateScheduledJobs(any(), eq("health"), eq(List.of("user-a", "user-c"))))
+                .thenReturn(List.of("job-a", "job-c"));
+        when(jobManagementService.initiateScheduledJobs(any(), eq("activity-user-b"), eq(List.of("user-b"))))
+                .thenReturn(List.of("job-b"));
+        when(jobManagementService.initiateScheduledJobs(any(), eq("activity-user-c"), eq(List.of("user-c"))))
+                .thenReturn(List.of("job-d"));
+
+        service.runDueSubscriptions();
+
+        verify(jobManagementService, times(3)).initiateScheduledJobs(any(), any(), any());
+        assertThat(List.of(healthA, activityB, healthC, activityC))
+                .extracting(ReportSubscriptionEntity::getLastJobId)
+                .containsExactly("job-a", "job-b", "job-c", "job-d");
+        assertThat(healthA.getNextRunAt()).isEqualTo(healthC.getNextRunAt());
+    }
+
+    @Test
+    void failingRunDoesNotKeepOtherRunsFromStarting() throws Exception {
+        ReportSubscriptionEntity healthA = subscription("sub-a", "user-a", new SystemHealthReportRequest());
+        ReportSubscriptionEntity healthB = subscription("sub-b", "user-b", new SystemHealthReportRequest());
+        ReportSubscriptionEntity activity = subscription("sub-c", "user-c", new UserActivityReportRequest());
+        when(subscriptionRepository.lockDue(any(), anyInt())).thenReturn(List.of(healthA, healthB, activity));
+        when(jobManagementService.initiateScheduledJobs(any(), eq("health"), any()))
+                .thenThrow(new IllegalStateException("poison"));
+        when(jobManagementService.initiateScheduledJobs(any(), eq("activity-user-c"), eq(List.of("user-c"))))
+                .thenReturn(List.of("job-c"));
+        Instant before = Instant.now();
+
+        service.runDueSubscriptions();
+
+        assertThat(activity.getLastJobId()).isEqualTo("job-c");
+        assertThat(activity.getNextRunAt()).isAfter(before);
+        // The failed run is skipped rather than retried on every poll
+        for (ReportSubscriptionEntity skipped : List.of(healthA, healthB)) {
+            assertThat(skipped.getLastJobId()).isNull();
+            assertThat(skipped.getLastRunAt()).isNull();
+            assertThat(skipped.getNextRunAt()).isAfter(before);
+        }
+    }
+
+    /**
+     * Subscribes to reports with many different parameters and checks each
+     * first run lies between the cron's fire time and the jitter bound
+     */
+    private void assertJitterBelow(String cron, Duration bound) {
+        when(userContextService.getCurrentUserId()).thenReturn("user-a");
+        CronExpression expression = CronExpression.parse(cron);
+
+        IntStream.range(0, 200).forEach(i -> {
+            ZonedDateTime before = ZonedDateTime.now(ZoneId.of("UTC"));
+            SubscriptionDTO subscription = service.subscribe(
+                    new SubscriptionRequest(new UserActivityReportRequest(i), cron));
+            ZonedDateTime after = ZonedDateTime.now(ZoneId.of("UTC"));
+
+            assertThat(subscription.getNextRunAt())
+                    .isAfterOrEqualTo(expression.next(before).toInstant())
+                    .isBefore(expression.next(after).toInstant().plus(bound));
+        });
+    }
+
+    private ReportSubscriptionEntity subscription(String subscriptionId, String userId, ReportRequest request)
+            throws Exception {
+        return ReportSubscriptionEntity.builder()
+                .subscriptionId(subscriptionId)
+                .userId(userId)
+                .fileType(request.getFileType())
+                .parameters(objectMapper.writeValueAsString(request))
+                .cronExpression(HOURLY)
+                .nextRunAt(Instant.now().minusSeconds(1))
+                .createdAt(Instant.now().minusSeconds(3600))
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package de.ma.download.service;
+
+import de.ma.download.dto.GeneratedFile;
+import de.ma.download.entity.JobEntity;
+import de.ma.download.model.JobStatusEnum;
+import de.ma.download.repository.JobRepository;
+import de.ma.download.repository.JobSummaryView;
+import de.ma.download.storage.ArtifactStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SharedJobFanOutTest {
+
+    private static final String SOURCE_JOB_ID = "source";
+
+    private JobRepository jobRepository;
+    private JobCommandService jobCommandService;
+    private ArtifactStore artifactStore;
+    private SharedJobFanOut fanOut;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository = mock(JobRepository.class);
+        jobCommandService = mock(JobCommandService.class);
+        artifactStore = mock(ArtifactStore.class);
+        fanOut = new SharedJobFanOut(jobRepository, jobCommandService, artifactStore);
+        when(jobRepository.findBySourceJobIdAndStatus(SOURCE_JOB_ID, JobStatusEnum.PENDING))
+                .thenReturn(List.of(follower("follower-1"), follower("follower-2")));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void completesFollowersOnlyWhileTheyArePending() {
+        source(JobStatusEnum.COMPLETED);
+        ArgumentCaptor<Predicate<JobEntity>> precondition = ArgumentCaptor.forClass(Predicate.class);
+
+        fanOut.settleFollowers(SOURCE_JOB_ID);
+
+        ArgumentCaptor<GeneratedFile> file = ArgumentCaptor.forClass(GeneratedFile.class);
+        verify(jobCommandService).completeJob(eq("follower-1"), file.capture(), precondition.capture());
+        verify(jobCommandService).completeJob(eq("follower-2"), any(), any());
+        assertThat(file.getValue().getArtifact().getKey()).isEqualTo("artifact");
+        verify(artifactStore).touch("artifact");
+
+        // A follower cancelled after it was read keeps its status
+        assertThat(precondition.getValue().test(withStatus(JobStatusEnum.PENDING))).isTrue();
+        assertThat(precondition.getValue().test(withStatus(JobStatusEnum.CANCELLED))).isFalse();
+        assertThat(precondition.getValue().test(withStatus(JobStatusEnum.COMPLETED))).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void failsFollowersOfFailedSourceOnlyWhileTheyArePending() {
+        source(JobStatusEnum.FAILED);
+        ArgumentCaptor<Predicate<JobEntity>> precondition = ArgumentCaptor.forClass(Predicate.class);
+
+        fanOut.settleFollowers(SOURCE_JOB_ID);
+
+        verify(jobCommandService).failJob(eq("follower-1"), eq("boom"), precondition.capture());
+        verify(jobCommandService, never()).completeJob(anyString(), any(), any());
+        assertThat(precondition.getValue().test(withStatus(JobStatusEnum.CANCELLED))).isFalse();
+    }
+
+    @Test
+    void leavesFollowersOfUnsettledSourceAlone() {
+        source(JobStatusEnum.IN_PROGRESS);
+
+        fanOut.settleFollowers(SOURCE_JOB_ID);
+
+        verify(jobCommandService, never()).completeJob(anyString(), any(), any());
+        verify(jobCommandService, never()).failJob(anyString(), any(), any());
+    }
+
+    private void source(JobStatusEnum status) {
+        JobSummaryView source = mock(JobSummaryView.class);
+        when(source.getStatus()).thenReturn(status);
+        when(source.getArtifactKey()).thenReturn("artifact");
+        when(source.getFileSize()).thenReturn(42L);
+        when(source.getFailureReason()).thenReturn(status == JobStatusEnum.FAILED ? "boom" : null);
+        when(jobRepository.findSummaryByJobId(SOURCE_JOB_ID)).thenReturn(Optional.of(source));
+    }
+
+    private static JobEntity follower(String jobId) {
+        return JobEntity.builder().jobId(jobId).sourceJobId(SOURCE_JOB_ID).status(JobStatusEnum.PENDING).build();
+    }
+
+    private static JobEntity withStatus(JobStatusEnum status) {
+        return JobEntity.builder().jobId("follower-1").status(status).build();
+    }
+}
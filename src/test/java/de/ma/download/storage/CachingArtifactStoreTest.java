@@ -0,0 +1,95 @@
+package de.ma.download.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingArtifactStoreTest {
+
+    @TempDir
+    private Path root;
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesToStayWithinBudget() throws IOException {
+        CachingArtifactStore cache = cache(100, 100);
+        String a = commit(cache, 40, 'a');
+        String b = commit(cache, 40, 'b');
+        String c = commit(cache, 40, 'c');
+
+        read(cache, a);
+        read(cache, b);
+        // Reading a again makes b the least recently used
+        read(cache, a);
+        read(cache, c);
+
+        ArtifactCacheStats stats = cache.getStats();
+        assertThat(stats.getEvictions()).isEqualTo(1);
+        assertThat(stats.getEntries()).isEqualTo(2);
+        assertThat(stats.getSizeBytes()).isEqualTo(80);
+
+        long misses = stats.getMisses();
+        assertThat(read(cache, a)).isEqualTo("a".repeat(40));
+        assertThat(cache.getStats().getMisses()).isEqualTo(misses);
+        assertThat(read(cache, b)).isEqualTo("b".repeat(40));
+        assertThat(cache.getStats().getMisses()).isEqualTo(misses + 1);
+        assertThat(cache.getStats().getSizeBytes()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void readsArtifactsAboveEntryLimitFromDelegate() throws IOException {
+        CachingArtifactStore cache = cache(100, 10);
+        String large = commit(cache, 20, 'l');
+
+        assertThat(read(cache, large)).isEqualTo("l".repeat(20));
+        assertThat(read(cache, large)).isEqualTo("l".repeat(20));
+
+        ArtifactCacheStats stats = cache.getStats();
+        assertThat(stats.getEntries()).isZero();
+        assertThat(stats.getHits()).isZero();
+        assertThat(stats.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void deleteDropsCachedEntry() throws IOException {
+        CachingArtifactStore cache = cache(100, 100);
+        String key = commit(cache, 10, 'd');
+        read(cache, key);
+        assertThat(cache.getStats().getEntries()).isEqualTo(1);
+
+        assertThat(cache.delete(key)).isTrue();
+
+        assertThat(cache.getStats().getEntries()).isZero();
+        assertThat(cache.getStats().getSizeBytes()).isZero();
+        assertThat(cache.exists(key)).isFalse();
+        assertThatThrownBy(() -> read(cache, key)).isInstanceOf(IOException.class);
+    }
+
+    private CachingArtifactStore cache(long maxSizeBytes, long maxEntryBytes) {
+        return new CachingArtifactStore(new LocalFileSystemArtifactStore(root), maxSizeBytes, maxEntryBytes, false);
+    }
+
+    private static String commit(ArtifactStore store, int size, char fill) throws IOException {
+        try (ArtifactWriter writer = store.openWriter()) {
+            writer.getOutputStream().write(String.valueOf(fill).repeat(size).getBytes(StandardCharsets.UTF_8));
+            return writer.commit().getKey();
+        }
+    }
+
+    private static String read(ArtifactStore store, String key) throws IOException {
+        try (SeekableByteChannel channel = store.openChannel(key)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full
+            }
+            return new String(buffer.array(), StandardCharsets.UTF_8);
+        }
+    }
+}
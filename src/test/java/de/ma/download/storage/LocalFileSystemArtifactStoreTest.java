@@ -0,0 +1,71 @@
+package de.ma.download.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalFileSystemArtifactStoreTest {
+
+    @TempDir
+    private Path root;
+
+    private LocalFileSystemArtifactStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalFileSystemArtifactStore(root);
+    }
+
+    @Test
+    void identicalContentIsStoredOnce() throws IOException {
+        String first = commit("same");
+        String second = commit("same");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(store.findKeysModifiedBefore(Instant.now().plusSeconds(1))).containsExactly(first);
+    }
+
+    @Test
+    void findsOnlyArtifactsModifiedBeforeCutoff() throws IOException {
+        String old = commit("old");
+        String recent = commit("recent");
+        age(old, Duration.ofHours(2));
+
+        assertThat(store.findKeysModifiedBefore(Instant.now().minus(Duration.ofHours(1)))).containsExactly(old);
+
+        store.touch(old);
+        assertThat(store.findKeysModifiedBefore(Instant.now().minus(Duration.ofHours(1)))).isEmpty();
+        assertThat(store.exists(recent)).isTrue();
+    }
+
+    @Test
+    void ignoresUncommittedAndForeignFiles() throws IOException {
+        try (ArtifactWriter writer = store.openWriter()) {
+            writer.getOutputStream().write("never committed".getBytes(StandardCharsets.UTF_8));
+        }
+        Files.writeString(root.resolve("README"), "not an artifact");
+
+        assertThat(store.findKeysModifiedBefore(Instant.now().plusSeconds(1))).isEmpty();
+    }
+
+    private String commit(String content) throws IOException {
+        try (ArtifactWriter writer = store.openWriter()) {
+            writer.getOutputStream().write(content.getBytes(StandardCharsets.UTF_8));
+            return writer.commit().getKey();
+        }
+    }
+
+    private void age(String key, Duration age) throws IOException {
+        Files.setLastModifiedTime(store.localPath(key).orElseThrow(), FileTime.from(Instant.now().minus(age)));
+    }
+}